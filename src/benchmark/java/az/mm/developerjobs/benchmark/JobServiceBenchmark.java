@@ -0,0 +1,196 @@
+package az.mm.developerjobs.benchmark;
+
+import az.mm.developerjobs.DeveloperjobsApplication;
+import az.mm.developerjobs.constant.ImageSource;
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.FacetFilter;
+import az.mm.developerjobs.model.JobPage;
+import az.mm.developerjobs.model.JobSummary;
+import az.mm.developerjobs.model.Pagination;
+import az.mm.developerjobs.service.ImageClassifier;
+import az.mm.developerjobs.service.JobService;
+import az.mm.developerjobs.service.SearchIndex;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * JobService hot paths against generated all_vacancies of 10k, 100k and 1M rows (see SyntheticData).
+ *
+ * The application context is started without the web server, once per data set. Run with
+ * mvn -Pbenchmark -DskipTests test-compile exec:exec, results are written to target/jmh-result.json.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JobServiceBenchmark {
+
+    private static final String OPEN = "<b style=\"color:blue;\">";
+    private static final String CLOSE = "</b>";
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"Java", "PostgreSQL"})
+    public String searchText;
+
+    private ConfigurableApplicationContext context;
+    private JobService jobService;
+    private ImageClassifier imageClassifier;
+
+    private int middlePage;
+    private String[][] images;   // website, job title
+    private String content;
+
+
+    @Setup(Level.Trial)
+    public void startApplication() throws Exception {
+        String database = SyntheticData.database(rows).getAbsolutePath();
+        context = new SpringApplicationBuilder(DeveloperjobsApplication.class)
+                .web(false)
+                .properties("developerjobs.datasource.file=" + database,
+                            "developerjobs.data-version.check-interval=3600000",
+                            "logging.level.root=WARN")
+                .run();
+        jobService = context.getBean(JobService.class);
+        imageClassifier = context.getBean(ImageClassifier.class);
+
+        middlePage = jobService.countOfVacancy("840") / 10 / 2;
+        images = new String[][]{
+            {"boss.az", "LARAVEL DEVELOPER"},
+            {"careerbuilder.com", "Senior Java Developer"},
+            {"monster.de", "Frontend Engineer (m/w)"},
+            {"careerbuilder.com", "Oracle Database Administrator"},
+            {"monster.de", "Project Manager"}
+        };
+        content = longestContent(jobService.getJobsWithLimit("840", 0));
+    }
+
+    private String longestContent(List<JobSummary> jobs) {
+        String longest = "";
+        for (JobSummary j : jobs) {
+            JobInfo job = jobService.getJob(j.getId(), j.getUrlSuffix());
+            if (job != null && job.getContent().length() > longest.length()) longest = job.getContent();
+        }
+        return longest;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+
+    /* Search: first page with facets as /search.htm gets it, in-memory index against the LIKE scan and FTS */
+
+    /**
+     * Results of the in-memory index are cached by text, this state clears them before every call
+     */
+    @State(Scope.Benchmark)
+    public static class Uncached {
+        private SearchIndex searchIndex;
+
+        @Setup(Level.Invocation)
+        public void clear(JobServiceBenchmark benchmark) {
+            if (searchIndex == null) searchIndex = benchmark.context.getBean(SearchIndex.class);
+            searchIndex.getCache().clear();
+        }
+    }
+
+    @Benchmark
+    public JobPage searchFirstPage(Uncached uncached) {
+        return jobService.search(searchText, new FacetFilter(), 0, 10);
+    }
+
+    @Benchmark
+    public JobPage searchFirstPageCached() {
+        return jobService.search(searchText, new FacetFilter(), 0, 10);
+    }
+
+    @Benchmark
+    public List<JobSummary> likeSearchResultFirstPage() {
+        return jobService.likeSearchResult(searchText, 0, 10);
+    }
+
+    @Benchmark
+    public List<JobSummary> fullTextSearchResultFirstPage() {
+        return jobService.fullTextSearchResult(searchText, 0, 10);
+    }
+
+
+    /* Images: what createImageSource/getDeveloperImageUrl did before they were cached per id */
+
+    @Benchmark
+    public void classifyImage(Blackhole blackhole) {
+        for (String[] image : images) {
+            ImageSource source = imageClassifier.classify(image[0], image[1]);
+            blackhole.consume(source);
+        }
+    }
+
+
+    /* Listing: OFFSET through JPA paging and native LIMIT against the keyset seek, each hitting SQLite; and the cached page */
+
+    @Benchmark
+    public Pagination createPagination() {
+        return jobService.createPagination("840", middlePage + 1);
+    }
+
+    @Benchmark
+    public List<JobSummary> getJobsWithPageRequest() {
+        return jobService.getJobsWithPageRequest("840", middlePage);
+    }
+
+    @Benchmark
+    public List<JobSummary> getJobsWithLimit() {
+        return jobService.getJobsWithLimit("840", middlePage * 10);
+    }
+
+    @Benchmark
+    public List<JobSummary> loadJobsWithKeyset() {
+        return jobService.loadJobsWithKeyset("840", middlePage);
+    }
+
+    @Benchmark
+    public List<JobSummary> getJobsWithKeysetCached() {
+        return jobService.getJobsWithKeyset("840", middlePage);
+    }
+
+
+    /* Job detail highlighting: the linear matcher against the regex replace it replaced */
+
+    @Benchmark
+    public String highlightContent() {
+        JobInfo job = new JobInfo();
+        job.setContent(content);
+        return jobService.highlightContent(job, searchText);
+    }
+
+    @Benchmark
+    public String highlightWithRegex() {
+        return content.replaceAll(Pattern.quote(searchText), Matcher.quoteReplacement(OPEN + searchText + CLOSE));
+    }
+
+}
@@ -0,0 +1,447 @@
+package az.mm.developerjobs.benchmark;
+
+import az.mm.developerjobs.DeveloperjobsApplication;
+import az.mm.developerjobs.service.JobService;
+import az.mm.developerjobs.web.Bulkhead;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * HTTP load test of the whole application: /, /country, /job/{id}/{title} and /search.htm.
+ *
+ * The application is started with embedded Tomcat against a generated database (see SyntheticData),
+ * then client threads replay a weighted request mix over keep-alive connections. Per endpoint the
+ * report has latency percentiles (HdrHistogram), throughput, errors (status other than 200/304) and
+ * server side allocation. The application runs with its production bulkheads: allocation is measured
+ * on the request thread by a filter in front of all others, and on the bulkhead thread around the handler
+ * it submitted (see AllocationBulkhead).
+ *
+ * With rate=0 every client sends its next request as soon as the previous one is answered. With a
+ * rate, requests are scheduled at that total rate and latency is taken from the scheduled time, so
+ * queueing behind a slow response is part of the result (no coordinated omission).
+ *
+ * Options are key=value arguments, developerjobs.* and spring.* ones are passed to the application:
+ * mvn -Pbenchmark -DskipTests test-compile exec:exec@load-test -Dload-test.args="rows=100000 duration=60"
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public final class LoadTest {
+
+    private static final String ENDPOINT_HEADER = "X-Load-Test-Endpoint";
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toMicros(1);
+    private static final String[] COUNTRIES = {"031", "276", "840"};
+
+    private final Map<String, String> options = new LinkedHashMap<>();
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final AllocationFilter allocationFilter = new AllocationFilter();
+
+    private String baseUrl;
+    private List<String> jobPaths;
+    private int[] countryPages;
+    private String[] mixNames;
+    private long[] mixWeights;   // cumulative
+
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(args).run();
+        System.exit(0);   // scheduler threads of the application are not daemons
+    }
+
+    private LoadTest(String[] args) {
+        options.put("rows", "100000");
+        options.put("threads", "16");
+        options.put("warmup", "20");
+        options.put("duration", "60");
+        options.put("rate", "0");
+        options.put("mix", "home:1,country:4,job:4,search:1");
+        options.put("report", "target/load-test-report.json");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        String[] mix = options.get("mix").split(",");
+        mixNames = new String[mix.length];
+        mixWeights = new long[mix.length];
+        for (int i = 0; i < mix.length; i++) {
+            String[] entry = mix[i].split(":");
+            if (!entry[0].matches("home|country|job|search")) throw new IllegalArgumentException("Unknown endpoint: " + entry[0]);
+            endpoints.put(entry[0], new Endpoint(entry[0]));
+            mixNames[i] = entry[0];
+            mixWeights[i] = (i == 0 ? 0 : mixWeights[i - 1]) + Long.parseLong(entry[1]);
+        }
+    }
+
+    private int intOption(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+
+    private void run() throws Exception {
+        int threads = intOption("threads");
+        System.setProperty("http.maxConnections", String.valueOf(threads));   // keep-alive connections per host
+
+        ConfigurableApplicationContext context = start();
+        try {
+            loadSamples(context);
+            Client[] clients = new Client[threads];
+            double rate = Double.parseDouble(options.get("rate"));
+            for (int i = 0; i < threads; i++) {
+                clients[i] = new Client(i, rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(threads) / rate) : 0);
+                clients[i].start();
+            }
+
+            System.out.printf("Warming up for %s s...%n", options.get("warmup"));
+            TimeUnit.SECONDS.sleep(intOption("warmup"));
+            endpoints.values().forEach(Endpoint::reset);
+
+            System.out.printf("Measuring for %s s...%n", options.get("duration"));
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(intOption("duration"));
+            Map<String, Object> report = report((System.nanoTime() - start) / 1e9);
+
+            for (Client client : clients) client.interrupt();
+            for (Client client : clients) client.join();
+
+            File file = new File(options.get("report"));
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+            System.out.printf("Report written to %s%n", file);
+        } finally {
+            context.close();
+        }
+    }
+
+    private ConfigurableApplicationContext start() throws Exception {
+        List<String> properties = new ArrayList<>();
+        properties.add("developerjobs.datasource.file=" + SyntheticData.database(intOption("rows")).getAbsolutePath());
+        properties.add("server.port=0");
+        properties.add("developerjobs.data-version.check-interval=3600000");
+        properties.add("developerjobs.rate-limit.search.per-minute=100000000");   // all requests come from one address
+        properties.add("developerjobs.rate-limit.search.burst=100000000");
+        properties.add("logging.level.root=WARN");
+        options.forEach((key, value) -> {
+            if (key.startsWith("developerjobs.") || key.startsWith("spring.")) properties.add(key + '=' + value);
+        });
+
+        FilterRegistrationBean allocationFilterRegistration = new FilterRegistrationBean(allocationFilter);
+        allocationFilterRegistration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);   // rendering of async handlers
+        allocationFilterRegistration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DeveloperjobsApplication.class)
+                .initializers(c -> {
+                    c.getBeanFactory().registerSingleton("loadTestAllocationFilter", allocationFilterRegistration);
+                    c.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                        @Override
+                        public Object postProcessBeforeInitialization(Object bean, String name) {
+                            return bean;
+                        }
+
+                        @Override
+                        public Object postProcessAfterInitialization(Object bean, String name) {
+                            return bean instanceof Bulkhead ? new AllocationBulkhead((Bulkhead) bean) : bean;
+                        }
+                    });
+                })
+                .properties(properties.toArray(new String[properties.size()]))
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        return context;
+    }
+
+    /**
+     * Jobs and pages to request, picked from the database once
+     */
+    private void loadSamples(ConfigurableApplicationContext context) throws IOException {
+        jobPaths = new ArrayList<>();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (Map<String, Object> row : jdbcTemplate.queryForList("select id, url_suffix from all_vacancies order by random() limit 1000")) {
+            jobPaths.add("/job/" + row.get("id") + "/" + URLEncoder.encode(String.valueOf(row.get("url_suffix")), "UTF-8"));
+        }
+
+        JobService jobService = context.getBean(JobService.class);
+        countryPages = new int[COUNTRIES.length];
+        for (int i = 0; i < COUNTRIES.length; i++) {
+            countryPages[i] = Math.max(1, (jobService.countOfVacancy(COUNTRIES[i]) + 9) / 10);
+        }
+    }
+
+    /**
+     * Pages are skewed to the front of the listing and search results, as in real traffic
+     */
+    private String nextPath(String endpoint, ThreadLocalRandom random) throws IOException {
+        switch (endpoint) {
+            case "home":
+                return "/";
+            case "country":
+                int country = random.nextInt(COUNTRIES.length);
+                return "/country?id=" + COUNTRIES[country] + "&page=" + (1 + skewed(countryPages[country], random));
+            case "job":
+                String path = jobPaths.get(random.nextInt(jobPaths.size()));
+                return random.nextInt(4) == 0 ? path + "?searchText=" + pick(SyntheticData.SEARCH_TERMS, random) : path;
+            default:
+                return "/search.htm?searchText=" + URLEncoder.encode(pick(SyntheticData.SEARCH_TERMS, random), "UTF-8")
+                       + "&page=" + (1 + skewed(3, random));
+        }
+    }
+
+    private static int skewed(int bound, ThreadLocalRandom random) {
+        return Math.min(bound - 1, (int) (-Math.log(1 - random.nextDouble()) * Math.max(1, bound / 20)));
+    }
+
+    private static String pick(String[] values, ThreadLocalRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String nextEndpoint(ThreadLocalRandom random) {
+        long r = random.nextLong(mixWeights[mixWeights.length - 1]);
+        int i = 0;
+        while (mixWeights[i] <= r) i++;
+        return mixNames[i];
+    }
+
+
+    private Map<String, Object> report(double seconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("java", System.getProperty("java.version"));
+        report.put("options", options);
+        report.put("seconds", round(seconds));
+
+        long total = 0;
+        Map<String, Object> results = new LinkedHashMap<>();
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %12s%n",
+                          "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "alloc/req");
+        for (Endpoint endpoint : endpoints.values()) {
+            Histogram histogram = endpoint.latency.getIntervalHistogram();
+            long requests = histogram.getTotalCount();
+            long allocated = endpoint.allocatedBytes.sum();
+            total += requests;
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", round(histogram.getMean() / 1000));
+            latency.put("p50", round(histogram.getValueAtPercentile(50) / 1000.0));
+            latency.put("p90", round(histogram.getValueAtPercentile(90) / 1000.0));
+            latency.put("p99", round(histogram.getValueAtPercentile(99) / 1000.0));
+            latency.put("p999", round(histogram.getValueAtPercentile(99.9) / 1000.0));
+            latency.put("max", round(histogram.getMaxValue() / 1000.0));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", requests);
+            result.put("errors", endpoint.errors.sum());
+            result.put("throughput", round(requests / seconds));
+            result.put("latency_ms", latency);
+            result.put("allocated_bytes_per_request", requests == 0 ? 0 : allocated / requests);
+            result.put("allocation_mb_per_second", round(allocated / seconds / (1 << 20)));
+            results.put(endpoint.name, result);
+
+            System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %12s%n", endpoint.name, requests, endpoint.errors.sum(),
+                              requests / seconds, latency.get("p50"), latency.get("p99"), latency.get("p999"), latency.get("max"),
+                              result.get("allocated_bytes_per_request"));
+        }
+        report.put("throughput", round(total / seconds));
+        report.put("endpoints", results);
+
+        return report;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+
+    private static final class Endpoint {
+        final String name;
+        final Recorder latency = new Recorder(MAX_LATENCY, 3);   // micros
+        final LongAdder errors = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        void reset() {
+            latency.reset();
+            errors.reset();
+            allocatedBytes.reset();
+        }
+    }
+
+    private final class Client extends Thread {
+        private final long interval;   // nanos between scheduled requests of this client, 0 - closed loop
+
+        Client(int index, long interval) {
+            super("load-test-client-" + index);
+            this.interval = interval;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            byte[] buffer = new byte[8192];
+            long scheduled = System.nanoTime();
+            while (!isInterrupted()) {
+                if (interval > 0) {
+                    scheduled += interval;
+                    long sleep = scheduled - System.nanoTime();
+                    if (sleep > 0) LockSupport.parkNanos(sleep);
+                } else {
+                    scheduled = System.nanoTime();
+                }
+
+                Endpoint endpoint = endpoints.get(nextEndpoint(random));
+                boolean ok;
+                try {
+                    ok = request(endpoint.name, nextPath(endpoint.name, random), buffer);
+                } catch (IOException ex) {
+                    ok = false;
+                }
+                endpoint.latency.recordValue(Math.min(MAX_LATENCY, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled)));
+                if (!ok) endpoint.errors.increment();
+            }
+        }
+
+        private boolean request(String endpoint, String path, byte[] buffer) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestProperty(ENDPOINT_HEADER, endpoint);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) while (in.read(buffer) >= 0) { }   // read fully, so the connection is reused
+            }
+            return status == 200 || status == 304;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Bytes allocated by the request threads (first and async dispatch) while the request is handled, by endpoint header
+     */
+    private final class AllocationFilter implements Filter, Ordered {
+        private final ThreadLocal<Endpoint> current = new ThreadLocal<>();   // read by AllocationBulkhead.submit
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            Endpoint endpoint = endpoints.get(((HttpServletRequest) request).getHeader(ENDPOINT_HEADER));
+            if (endpoint == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+
+            long thread = Thread.currentThread().getId();
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            current.set(endpoint);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                current.remove();
+                endpoint.allocatedBytes.add(THREADS.getThreadAllocatedBytes(thread) - before);
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void init(FilterConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    /**
+     * Bulkhead of the application, which also adds the bytes allocated by the submitted handler on the
+     * bulkhead thread to the endpoint of the request that submitted it
+     */
+    private final class AllocationBulkhead extends Bulkhead {
+        private final Bulkhead bulkhead;
+
+        AllocationBulkhead(Bulkhead bulkhead) {
+            super(bulkhead.getName(), 0, 1);
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> submit(Callable<T> task) {
+            Endpoint endpoint = allocationFilter.current.get();
+            if (endpoint == null) return bulkhead.submit(task);
+
+            return bulkhead.submit(() -> {
+                long thread = Thread.currentThread().getId();
+                long before = THREADS.getThreadAllocatedBytes(thread);
+                try {
+                    return task.call();
+                } finally {
+                    endpoint.allocatedBytes.add(THREADS.getThreadAllocatedBytes(thread) - before);
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            bulkhead.shutdown();
+        }
+
+        @Override
+        public int getThreads() {
+            return bulkhead.getThreads();
+        }
+
+        @Override
+        public int getActive() {
+            return bulkhead.getActive();
+        }
+
+        @Override
+        public int getQueued() {
+            return bulkhead.getQueued();
+        }
+
+        @Override
+        public long rejectedCount() {
+            return bulkhead.rejectedCount();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package az.mm.developerjobs.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Generates an all_vacancies database of the given size for benchmarks and load tests.
+ *
+ * Rows look like the scraped ones: the three countries of the site with their websites, titles built
+ * from the words real titles use, HTML content of a few hundred chars. The generator is seeded, so
+ * the same size always gives the same data, and a generated file is reused by later runs.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public final class SyntheticData {
+
+    public static final File DIRECTORY = new File("target/benchmark-data");
+
+    // the same table as in the bundled developer_jobs.sqlite
+    private static final String CREATE_TABLE = "create table all_vacancies ("
+            + "id integer primary key autoincrement not null, job_title varchar, company varchar, salary varchar, "
+            + "published varchar, deadline varchar, link varchar not null, website varchar, "
+            + "insert_date datetime default current_timestamp, content text, location varchar, country_code varchar, "
+            + "job_type varchar, url_suffix varchar(150), unique (link asc))";
+    private static final String INSERT = "insert into all_vacancies (job_title, company, salary, published, deadline, link, website, "
+                                       + "content, location, country_code, job_type, url_suffix) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int BATCH = 10000;
+
+    /** Search terms which occur in the generated content, from frequent to rare */
+    public static final String[] SEARCH_TERMS = {"Java", "developer", "Spring", "PostgreSQL", "Kubernetes", "Haskell"};
+
+    private static final String[][] COUNTRIES = {
+        {"031", "boss.az", "jobsearch.az", "rabota.az"},
+        {"276", "monster.de"},
+        {"840", "careerbuilder.com"}
+    };
+    private static final String[] LOCATIONS = {"Baku", "Berlin, DE", "Munich, DE", "New York, NY", "Austin, TX", "Seattle, WA"};
+    private static final String[] JOB_TYPES = {"Full-Time", "Part-Time", "Contractor", "Intern"};
+    private static final String[] LEVELS = {"", "Junior ", "Senior ", "Lead ", "Principal "};
+    private static final String[] TECHNOLOGIES = {"Java", "JavaScript", "PHP", ".NET", "Python", "Android", "iOS", "Oracle",
+                                                  "Frontend", "Backend", "Full Stack", "C++", "SQL", "Web", "Haskell"};
+    private static final String[] ROLES = {"Developer", "Engineer", "Programmer", "Architect", "Proqramçı",
+                                           "Программист", "Administrator"};
+    private static final String[] COMPANIES = {"Unibank", "Access Bank", "Chameleon", "Open Europe", "Acme Corp", "Initech",
+                                               "Globex", "Umbrella", "Hooli", "Vandelay Industries", "Stark Industries"};
+    private static final String[] WORDS = {"team", "developer", "experience", "with", "and", "the", "software", "Java",
+                                           "Spring", "services", "design", "testing", "SQL", "PostgreSQL", "REST", "cloud",
+                                           "agile", "code", "review", "years", "knowledge", "of", "application", "data",
+                                           "Kubernetes", "Linux", "Git", "customers", "product", "quality", "system",
+                                           "təcrübə", "bilik", "опыт", "R&amp;D"};
+
+    private SyntheticData() {
+    }
+
+
+    /**
+     * @return sqlite file with the given number of rows, generated on first use
+     */
+    public static File database(int rows) throws IOException, SQLException {
+        File file = new File(DIRECTORY, "all_vacancies-" + rows + ".sqlite");
+        if (file.isFile()) return file;
+
+        DIRECTORY.mkdirs();
+        File temp = new File(DIRECTORY, file.getName() + ".tmp");
+        temp.delete();
+        long start = System.currentTimeMillis();
+        generate(temp, rows);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);   // a half written file is never reused
+        System.out.printf("Generated %s in %d ms%n", file, System.currentTimeMillis() - start);
+
+        return file;
+    }
+
+    private static void generate(File file, int rows) throws SQLException {
+        Random random = new Random(rows);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("pragma journal_mode = off");
+                statement.execute("pragma synchronous = off");
+                statement.execute(CREATE_TABLE);
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                for (int i = 0; i < rows; i++) {
+                    addRow(insert, i, random);
+                    if ((i + 1) % BATCH == 0 || i + 1 == rows) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addRow(PreparedStatement insert, int i, Random random) throws SQLException {
+        String[] country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+        String website = country[1 + random.nextInt(country.length - 1)];
+        String company = pick(COMPANIES, random);
+        String title = pick(LEVELS, random) + pick(TECHNOLOGIES, random) + " " + pick(ROLES, random);
+
+        insert.setString(1, title);
+        insert.setString(2, company);
+        insert.setString(3, random.nextBoolean() ? "" : " Pay: $" + (40 + random.nextInt(80)) + ".00/hour");
+        insert.setString(4, "2018-03-" + (10 + random.nextInt(19)));
+        insert.setString(5, "");
+        insert.setString(6, "https://" + website + "/vacancies/" + i);
+        insert.setString(7, website);
+        insert.setString(8, content(title, company, random));
+        insert.setString(9, pick(LOCATIONS, random));
+        insert.setString(10, country[0]);
+        insert.setString(11, pick(JOB_TYPES, random));
+        insert.setString(12, (company + " " + title).toLowerCase().replaceAll("[^\\p{L}]+", "-"));
+        insert.addBatch();
+    }
+
+    /**
+     * A few paragraphs, 300..1500 chars of HTML
+     */
+    static String content(String title, String company, Random random) {
+        StringBuilder content = new StringBuilder(1600);
+        content.append("<p><strong>").append(title).append("</strong> at ").append(company).append("</p>");
+        for (int p = 0, paragraphs = 1 + random.nextInt(4); p < paragraphs; p++) {
+            content.append(p % 2 == 0 ? "<p>" : "<ul><li>");
+            for (int w = 0, words = 20 + random.nextInt(30); w < words; w++) {
+                if (w > 0) content.append(' ');
+                content.append(pick(WORDS, random));
+            }
+            content.append(p % 2 == 0 ? ".</p>" : "</li></ul>");
+        }
+        return content.toString();
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+}
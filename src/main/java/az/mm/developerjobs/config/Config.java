@@ -4,12 +4,14 @@ package az.mm.developerjobs.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  *
  * @author MM <mushfiqazeri@gmail.com>
  */
 @Configuration
+@EnableScheduling
 public class Config {
     
     @Bean(name = "messageSource")
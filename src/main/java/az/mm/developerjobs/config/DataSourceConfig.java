@@ -0,0 +1,230 @@
+package az.mm.developerjobs.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sqlite.SQLiteDataSource;
+
+/**
+ * SQLite allows many readers but only one writer, so there are two pools over the same file:
+ *
+ *   dataSource       - read-only connections (one per core by default), used by JPA and jdbcTemplate
+ *   writerDataSource - a single connection, every write (DDL, ingestion, outbox) goes through writerJdbcTemplate
+ *                      and is serialized by the pool instead of failing with SQLITE_BUSY
+ *
+ * The bundled database is copied out of the classpath to a real file on first start, so that WAL
+ * and mmap can be used (the old jdbc:sqlite::resource: url extracted a new temp copy on every start).
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    @Value("${developerjobs.datasource.resource:developer_jobs.sqlite}")
+    private String resource;
+
+    @Value("${developerjobs.datasource.file:developer_jobs.sqlite}")
+    private String file;
+
+    @Value("${developerjobs.datasource.replace-on-change:false}")
+    private boolean replaceOnChange;
+
+    @Value("${developerjobs.datasource.readers:0}")
+    private int readers;
+
+    @Value("${developerjobs.datasource.max-wait:10000}")
+    private int maxWait;
+
+    @Value("${developerjobs.datasource.busy-timeout:5000}")
+    private int busyTimeout;
+
+    @Value("${developerjobs.datasource.mmap-size:268435456}")
+    private long mmapSize;
+
+    @Value("${developerjobs.datasource.cache-size:-16000}")
+    private int cacheSize;
+
+
+    @Bean(destroyMethod = "close")
+    public SQLitePool writerDataSource() {
+        File database = databaseFile();
+        String[] pragmas = {
+            "pragma journal_mode = WAL",
+            "pragma synchronous = NORMAL",
+            "pragma busy_timeout = " + busyTimeout,
+            "pragma cache_size = " + cacheSize,
+            "pragma temp_store = MEMORY"
+        };
+        return pool("writer", database, false, 1, pragmas);
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    @DependsOn("writerDataSource")   // the file is extracted and switched to WAL first
+    public SQLitePool dataSource() {
+        int size = readers > 0 ? readers : Runtime.getRuntime().availableProcessors();
+        String[] pragmas = {
+            "pragma busy_timeout = " + busyTimeout,
+            "pragma mmap_size = " + mmapSize,
+            "pragma cache_size = " + cacheSize,
+            "pragma temp_store = MEMORY"
+        };
+        return pool("readers", databaseFile(), true, size, pragmas);
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource());
+    }
+
+    @Bean
+    public JdbcTemplate writerJdbcTemplate() {
+        return new JdbcTemplate(writerDataSource());
+    }
+
+    /**
+     * Transactions of writerJdbcTemplate. The manager is not a bean, JPA keeps the default one.
+     */
+    @Bean
+    public TransactionTemplate writerTransactionTemplate() {
+        return new TransactionTemplate(new DataSourceTransactionManager(writerDataSource()));
+    }
+
+
+    private SQLitePool pool(String name, File database, boolean readOnly, int size, String[] pragmas) {
+        SQLiteDataSource sqlite = new SQLiteDataSource();
+        sqlite.setUrl("jdbc:sqlite:" + database.getAbsolutePath());
+        sqlite.setReadOnly(readOnly);
+
+        PoolProperties properties = new PoolProperties();
+        properties.setName(name);
+        properties.setDataSource(new PragmaDataSource(sqlite, pragmas));
+        properties.setInitialSize(1);
+        properties.setMinIdle(1);
+        properties.setMaxIdle(size);
+        properties.setMaxActive(size);
+        properties.setMaxWait(maxWait);
+        properties.setTestOnBorrow(false);   // a local file, connections don't go stale
+
+        logger.info("SQLite {} pool: {} connection(s), read-only={}, file={}", name, size, readOnly, database);
+        return new SQLitePool(name, new DataSource(properties));
+    }
+
+    /**
+     * Copies the bundled database next to the application unless it is already there.
+     *
+     * The SHA-256 of the bundled file is kept in "<file>.bundled". When a new war bundles a different
+     * database, the extracted copy is kept (rows added through /ingest live in it) with a warning, or with
+     * developerjobs.datasource.replace-on-change it is moved to "<file>.replaced" and the new one is extracted.
+     */
+    private synchronized File databaseFile() {
+        File database = new File(file);
+        File bundled = new File(file + ".bundled");
+        try {
+            String hash = bundledHash();
+            if (database.exists()) {
+                String extractedFrom = bundled.exists() ? new String(Files.readAllBytes(bundled.toPath()), StandardCharsets.US_ASCII).trim() : null;
+                if (extractedFrom == null) {
+                    Files.write(bundled.toPath(), hash.getBytes(StandardCharsets.US_ASCII));   // extracted by an older version, assumed current
+                    return database;
+                }
+                if (extractedFrom.equals(hash)) return database;
+                if (!replaceOnChange) {
+                    logger.warn("classpath:{} differs from the one {} was extracted from, the extracted database is kept (it may have rows "
+                            + "added through /ingest). Set developerjobs.datasource.replace-on-change=true to extract the bundled one.", resource, database);
+                    return database;
+                }
+
+                for (String suffix : new String[]{"", "-wal", "-shm"}) {   // the old WAL must not be applied to the new database
+                    File old = new File(file + suffix);
+                    if (old.exists()) Files.move(old.toPath(), new File(file + ".replaced" + suffix).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                logger.warn("classpath:{} differs from the one {} was extracted from, the old database is moved to {}.replaced", resource, database, file);
+            }
+
+            Path target = database.getAbsoluteFile().toPath();
+            if (target.getParent() != null) Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), database.getName(), ".tmp");
+            try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.write(bundled.toPath(), hash.getBytes(StandardCharsets.US_ASCII));
+            logger.info("Database extracted from classpath:{} to {}", resource, target);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Database could not be extracted to " + database.getAbsolutePath(), ex);
+        }
+
+        return database;
+    }
+
+    private String bundledHash() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            byte[] buffer = new byte[65536];
+            for (int n; (n = in.read(buffer)) > 0; ) digest.update(buffer, 0, n);
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+
+    /**
+     * Applies the PRAGMAs to every new physical connection (they are per connection in SQLite).
+     */
+    private static final class PragmaDataSource extends DelegatingDataSource {
+        private final String[] pragmas;
+
+        PragmaDataSource(javax.sql.DataSource target, String[] pragmas) {
+            super(target);
+            this.pragmas = pragmas;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                for (String pragma : pragmas) statement.execute(pragma);
+            } catch (SQLException ex) {
+                connection.close();
+                throw ex;
+            }
+            return connection;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package az.mm.developerjobs.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Connection pool of one kind (readers or writer) with borrow/wait counters.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class SQLitePool extends DelegatingDataSource {
+
+    private final String name;
+    private final DataSource pool;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+
+    public SQLitePool(String name, DataSource pool) {
+        super(pool);
+        this.name = name;
+        this.pool = pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            long waited = System.nanoTime() - start;
+            borrows.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+        }
+    }
+
+    public void close() {
+        pool.close();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxActive() {
+        return pool.getMaxActive();
+    }
+
+    public int getActive() {
+        return pool.getActive();
+    }
+
+    public int getIdle() {
+        return pool.getIdle();
+    }
+
+    /**
+     * @return threads waiting for a connection right now
+     */
+    public int getWaiting() {
+        return pool.getWaitCount();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[active=%d/%d, idle=%d, waiting=%d, borrows=%d, wait=%d ms, maxWait=%d ms]",
+                name, getActive(), getMaxActive(), getIdle(), getWaiting(), getBorrowCount(), getTotalWaitMillis(), getMaxWaitMillis());
+    }
+
+}
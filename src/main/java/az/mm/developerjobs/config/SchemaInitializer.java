@@ -0,0 +1,150 @@
+package az.mm.developerjobs.config;
+
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the auxiliary SQLite objects which are not part of the scraped schema.
+ *
+ * all_vacancies_country_id backs keyset pagination of /country (where country_code = ? and id < ?).
+ *
+ * all_vacancies_fts is an external content FTS5 table over all_vacancies, it is backfilled
+ * when created and kept in sync by triggers (so rows written by the scraper are indexed too).
+ *
+ * mail_outbox keeps contact messages until they are delivered (see MailOutbox).
+ *
+ * all_vacancies_changes is a single row counter which triggers increment on every insert, update
+ * and delete of all_vacancies, so DataVersion sees rows edited in place too.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class SchemaInitializer {
+
+    private final Logger logger = LoggerFactory.getLogger(SchemaInitializer.class);
+
+    private static final String[] INDEX_DDL = {
+        "create index if not exists all_vacancies_country_id on all_vacancies(country_code, id)"
+    };
+
+    private static final String FTS_EXISTS = "select count(*) from sqlite_master where type = 'table' and name = 'all_vacancies_fts'";
+
+    private static final String[] FTS_DDL = {
+        "create virtual table all_vacancies_fts using fts5(job_title, company, content, content='all_vacancies', content_rowid='id')",
+
+        "create trigger if not exists all_vacancies_fts_ai after insert on all_vacancies begin "
+            + "insert into all_vacancies_fts(rowid, job_title, company, content) values (new.id, new.job_title, new.company, new.content); "
+            + "end",
+
+        "create trigger if not exists all_vacancies_fts_ad after delete on all_vacancies begin "
+            + "insert into all_vacancies_fts(all_vacancies_fts, rowid, job_title, company, content) values ('delete', old.id, old.job_title, old.company, old.content); "
+            + "end",
+
+        "create trigger if not exists all_vacancies_fts_au after update on all_vacancies begin "
+            + "insert into all_vacancies_fts(all_vacancies_fts, rowid, job_title, company, content) values ('delete', old.id, old.job_title, old.company, old.content); "
+            + "insert into all_vacancies_fts(rowid, job_title, company, content) values (new.id, new.job_title, new.company, new.content); "
+            + "end",
+
+        "insert into all_vacancies_fts(all_vacancies_fts) values ('rebuild')"
+    };
+
+    private static final String[] OUTBOX_DDL = {
+        "create table if not exists mail_outbox ("
+            + "id integer primary key autoincrement, "
+            + "mail_from varchar not null, "
+            + "subject varchar, "
+            + "body text, "
+            + "created_at datetime default current_timestamp, "
+            + "attempts integer not null default 0, "
+            + "next_attempt_at integer not null default 0, "   // epoch millis
+            + "last_error varchar)"
+    };
+
+    private static final String[] CHANGES_DDL = {
+        "create table if not exists all_vacancies_changes (id integer primary key check (id = 1), changes integer not null)",
+
+        "insert or ignore into all_vacancies_changes(id, changes) values (1, 0)",
+
+        "create trigger if not exists all_vacancies_changes_ai after insert on all_vacancies begin "
+            + "update all_vacancies_changes set changes = changes + 1 where id = 1; "
+            + "end",
+
+        "create trigger if not exists all_vacancies_changes_au after update on all_vacancies begin "
+            + "update all_vacancies_changes set changes = changes + 1 where id = 1; "
+            + "end",
+
+        "create trigger if not exists all_vacancies_changes_ad after delete on all_vacancies begin "
+            + "update all_vacancies_changes set changes = changes + 1 where id = 1; "
+            + "end"
+    };
+
+    @Autowired
+    @Qualifier("writerJdbcTemplate")   // DDL, readers are opened read-only
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean fullTextSearchAvailable;
+    private volatile boolean changeCounterAvailable;
+
+
+    @PostConstruct
+    public void init() {
+        createIndexes();
+        createFullTextSearchTable();
+        createOutbox();
+        createChangeCounter();
+    }
+
+    private void createIndexes() {
+        try {
+            for (String ddl : INDEX_DDL) jdbcTemplate.execute(ddl);
+        } catch (DataAccessException ex) {
+            logger.error("Indexes could not be created", ex);
+        }
+    }
+
+    private void createFullTextSearchTable() {
+        try {
+            if (jdbcTemplate.queryForObject(FTS_EXISTS, Integer.class) == 0) {
+                long start = System.currentTimeMillis();
+                for (String ddl : FTS_DDL) jdbcTemplate.execute(ddl);
+                logger.info("all_vacancies_fts created and backfilled in {} ms", System.currentTimeMillis() - start);
+            }
+            fullTextSearchAvailable = true;
+        } catch (DataAccessException ex) {
+            // e.g. sqlite build without FTS5 or read-only database file
+            logger.error("Full text search is not available, falling back to the in-memory index", ex);
+        }
+    }
+
+    private void createOutbox() {
+        try {
+            for (String ddl : OUTBOX_DDL) jdbcTemplate.execute(ddl);
+        } catch (DataAccessException ex) {
+            logger.error("mail_outbox could not be created", ex);
+        }
+    }
+
+    private void createChangeCounter() {
+        try {
+            for (String ddl : CHANGES_DDL) jdbcTemplate.execute(ddl);
+            changeCounterAvailable = true;
+        } catch (DataAccessException ex) {
+            logger.error("all_vacancies_changes could not be created, rows updated in place are not detected", ex);
+        }
+    }
+
+    public boolean isChangeCounterAvailable() {
+        return changeCounterAvailable;
+    }
+
+    public boolean isFullTextSearchAvailable() {
+        return fullTextSearchAvailable;
+    }
+
+}
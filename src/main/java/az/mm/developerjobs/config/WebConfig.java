@@ -0,0 +1,94 @@
+package az.mm.developerjobs.config;
+
+import az.mm.developerjobs.web.Bulkhead;
+import az.mm.developerjobs.web.CacheHeadersInterceptor;
+import az.mm.developerjobs.web.MetricsInterceptor;
+import az.mm.developerjobs.web.RateLimitInterceptor;
+import az.mm.developerjobs.web.ResponseCacheFilter;
+import az.mm.developerjobs.web.TraceFilter;
+import java.util.EnumSet;
+import javax.servlet.DispatcherType;
+import javax.servlet.SessionTrackingMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletContextInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Configuration
+public class WebConfig extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private CacheHeadersInterceptor cacheHeadersInterceptor;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private MetricsInterceptor metricsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsInterceptor);   // first, so rejected requests are timed too
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/search.htm", "/sendMail");
+        registry.addInterceptor(cacheHeadersInterceptor).addPathPatterns("/", "/country", "/job/**");
+    }
+
+
+    // Handlers of IndexController run on these, see Bulkhead
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead searchBulkhead(@Value("${developerjobs.bulkhead.search.threads:4}") int threads,
+                                   @Value("${developerjobs.bulkhead.search.queue:100}") int queue) {
+        return new Bulkhead("search", threads, queue);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead listingBulkhead(@Value("${developerjobs.bulkhead.listing.threads:8}") int threads,
+                                    @Value("${developerjobs.bulkhead.listing.queue:200}") int queue) {
+        return new Bulkhead("listing", threads, queue);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead mailBulkhead(@Value("${developerjobs.bulkhead.mail.threads:1}") int threads,
+                                 @Value("${developerjobs.bulkhead.mail.queue:20}") int queue) {
+        return new Bulkhead("mail", threads, queue);
+    }
+
+
+    /**
+     * Sessions by cookie only, also in an external container: a ;jsessionid written into the links of
+     * a page kept by ResponseCacheFilter would be served to every visitor.
+     */
+    @Bean
+    public ServletContextInitializer cookieSessionTracking() {
+        return servletContext -> servletContext.setSessionTrackingModes(EnumSet.of(SessionTrackingMode.COOKIE));
+    }
+
+
+    // Filters which take part in the async dispatch rendering the result of a bulkhead (Spring Boot registers REQUEST only)
+
+    @Bean
+    public FilterRegistrationBean traceFilterRegistration(TraceFilter traceFilter) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(traceFilter);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean responseCacheFilterRegistration(ResponseCacheFilter responseCacheFilter) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(responseCacheFilter);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+
+}
@@ -10,17 +10,25 @@ public enum ImageSource {
     RABOTA_AZ("rabotaz.png"),
     BANCO_AZ("bancoaz.png"),
     
-    JAVA("java.png"),
-    NET("net.png"),
-    ANDROID("android.png"),
-    SQL("sql.png"),
-    PYTHON("python.png"),
-    PHP("php.png"),
+    /* Keyword rules for job titles of careerbuilder.com and monster.de (case insensitive). 
+       When several keywords match, the rule declared first wins. */
+    JAVA("java.png", "java"),
+    NET("net.png", "net"),
+    ANDROID("android.png", "android"),
+    SQL("sql.png", "sql"),
+    PYTHON("python.png", "python"),
+    PHP("php.png", "php"),
     DEVELOPER("developer.png");
     
     private final String imgSource;
-    private ImageSource(String imgSource){
+    private final String[] keywords;
+    private ImageSource(String imgSource, String... keywords){
         this.imgSource = imgSource;
+        this.keywords = keywords;
+    }
+
+    public String[] getKeywords() {
+        return keywords.clone();
     }
 
     @Override
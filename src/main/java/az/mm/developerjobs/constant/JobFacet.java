@@ -0,0 +1,30 @@
+package az.mm.developerjobs.constant;
+
+/**
+ * Fields of all_vacancies which search and listing pages can be filtered by, param is the request
+ * parameter of the filter (FacetFilter).
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public enum JobFacet {
+    WEBSITE("website", "Website"),
+    LOCATION("location", "Location"),   // city, the part before the first comma
+    JOB_TYPE("jobType", "Job type"),
+    COUNTRY("country", "Country");      // country_code
+
+    private final String param;
+    private final String title;
+
+    JobFacet(String param, String title) {
+        this.param = param;
+        this.title = title;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,12 @@
+package az.mm.developerjobs.constant;
+
+/**
+ * Backend used by /search.htm, chosen with developerjobs.search.backend property.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public enum SearchBackend {
+    INDEX,   // in-memory inverted index (SearchIndex), ranked, honours case sensitivity
+    FTS,     // SQLite FTS5 table ranked by bm25, case insensitive
+    LIKE     // "like %text%" table scan, case insensitive for ASCII
+}
@@ -0,0 +1,11 @@
+package az.mm.developerjobs.constant;
+
+/**
+ * Where jobs are read from, chosen with developerjobs.storage property.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public enum StorageMode {
+    DATABASE,   // SQLite through JPA
+    SNAPSHOT    // memory-mapped file compiled from all_vacancies (SnapshotStore), rebuilt when data changes
+}
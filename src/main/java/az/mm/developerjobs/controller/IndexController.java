@@ -2,15 +2,27 @@ package az.mm.developerjobs.controller;
 
 import az.mm.developerjobs.constant.JspPages;
 import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.metrics.Histogram;
+import az.mm.developerjobs.metrics.Metrics;
 import az.mm.developerjobs.model.*;
+import az.mm.developerjobs.service.JobIngestService;
 import az.mm.developerjobs.service.JobService;
-import java.util.List;
+import az.mm.developerjobs.web.Bulkhead;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -18,6 +30,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
+ * Pages reading jobs, searches and contact messages are handled on their own Bulkhead (listing, search,
+ * mail), the servlet thread is released meanwhile; static pages are handled on the servlet thread.
  *
  * @author MM <mushfiqazeri@gmail.com>
  */
@@ -26,48 +40,92 @@ public class IndexController {
     
     private final Logger logger = LoggerFactory.getLogger(IndexController.class);
     
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+    
     @Autowired
     private JobService jobService;
+    
+    @Autowired
+    private JobIngestService jobIngestService;
+    
+    @Autowired
+    private Metrics metrics;
+    
+    @Autowired
+    @Qualifier("listingBulkhead")
+    private Bulkhead listingBulkhead;
+    
+    @Autowired
+    @Qualifier("searchBulkhead")
+    private Bulkhead searchBulkhead;
+    
+    @Autowired
+    @Qualifier("mailBulkhead")
+    private Bulkhead mailBulkhead;
+    
+    private Histogram searchResultSize;
+    
+    
+    @PostConstruct
+    public void createMetrics() {
+        long[] bounds = {0, 1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 50000, 100000};
+        searchResultSize = metrics.histogram("search_result_size", "Number of jobs found by a search", bounds);
+    }
 
     @RequestMapping("/")
-    public ModelAndView homePage() {
-        ModelAndView model = new ModelAndView("main");
-        List<JobInfo> jobList = jobService.getJobsWithPageRequest("031", 0); // default country - Azerbaijan
-        Pagination pagination = jobService.createPagination("031", 1);
-        
-        model.addObject("jobList", jobList);
-        model.addObject("includePage", JspPages.JOBS);
-        model.addObject("countryCode", "031");
-        model.addObject("pagination", pagination);
+    public CompletableFuture<ModelAndView> homePage() {
+        return listingBulkhead.submit(() -> {
+            ModelAndView model = new ModelAndView("main");
+            JobPage jobPage = jobService.getJobs("031", new FacetFilter(), 0); // default country - Azerbaijan
+            Pagination pagination = jobService.createPagination(jobPage.getCount(), 1, 10);
 
-        return model;
+            model.addObject("jobList", jobPage.getJobs());
+            model.addObject("facets", jobPage.getFacets());
+            model.addObject("includePage", JspPages.JOBS);
+            model.addObject("countryCode", "031");
+            model.addObject("pagination", pagination);
+
+            return model;
+        });
     }
 
     
     @RequestMapping(value = "/country", method = RequestMethod.GET)
-    public ModelAndView jobsForCountry(@RequestParam(value = "id", defaultValue = "031") String countryCode, @RequestParam(value = "page", defaultValue = "1") String page) {
-        ModelAndView model = new ModelAndView("main");
+    public CompletableFuture<ModelAndView> jobsForCountry(@RequestParam(value = "id", defaultValue = "031") String countryCode, @RequestParam(value = "page", defaultValue = "1") String page, 
+                                                          @ModelAttribute("filters") FacetFilter filters) {
         
         /**
-         * Pagination with two ways:
+         * Pagination with three ways:
          * 
          * 1st - using PagingAndSortingRepository:
-         *   List<JobInfo> listVacancy = jobService.getJobsWithPageRequest(countryCode, Integer.parseInt(page)-1);
+         *   List<JobSummary> listVacancy = jobService.getJobsWithPageRequest(countryCode, Integer.parseInt(page)-1);
          * 
          * 2nd - using native query:
          *   int begin = Integer.parseInt(page + "0") - 10;
-         *   List<JobInfo> listVacancy = jobService.getJobsWithLimit(countryCode, begin);
+         *   List<JobSummary> listVacancy = jobService.getJobsWithLimit(countryCode, begin);
+         * 
+         * 3rd - keyset (seek) with cached page boundaries, no rows are skipped on deep pages:
+         *   List<JobSummary> listVacancy = jobService.getJobsWithKeyset(countryCode, Integer.parseInt(page)-1);
+         * 
+         * Filtered by facets (website, location, job type), the page is taken from the FacetIndex bitmaps.
          */
         
-        List<JobInfo> jobList = jobService.getJobsWithPageRequest(countryCode, Integer.parseInt(page)-1); //zero-base index
-        Pagination pagination = jobService.createPagination(countryCode, Integer.parseInt(page));
-
-        model.addObject("jobList", jobList);
-        model.addObject("includePage", JspPages.JOBS);
-        model.addObject("countryCode", countryCode);
-        model.addObject("pagination", pagination);
+        int currentPage = Math.min(Math.max(Integer.parseInt(page), 1), Integer.MAX_VALUE / 10);   // page comes from the url
         
-        return model;
+        return listingBulkhead.submit(() -> {
+            ModelAndView model = new ModelAndView("main");
+            JobPage jobPage = jobService.getJobs(countryCode, filters, currentPage-1); //zero-base index
+            Pagination pagination = jobService.createPagination(jobPage.getCount(), currentPage, 10);
+
+            model.addObject("jobList", jobPage.getJobs());
+            model.addObject("facets", jobPage.getFacets());
+            model.addObject("filterQuery", filters.toQueryString());
+            model.addObject("includePage", JspPages.JOBS);
+            model.addObject("countryCode", countryCode);
+            model.addObject("pagination", pagination);
+
+            return model;
+        });
     }
 
 
@@ -89,33 +147,52 @@ public class IndexController {
     }
 
     
-    @RequestMapping(value = "/search.htm", method = RequestMethod.POST)
-    public ModelAndView search(@Valid @ModelAttribute("search") Search search, BindingResult result) {
-        ModelAndView model = new ModelAndView("main");
-        
-        if(result.hasErrors()){
+    /**
+     * POST comes from the search form, GET from the page links and facet filters of search.jsp
+     */
+    @RequestMapping(value = "/search.htm", method = {RequestMethod.GET, RequestMethod.POST})
+    public CompletableFuture<ModelAndView> search(@Valid @ModelAttribute("search") Search search, BindingResult result, 
+                                                  @ModelAttribute("filters") FacetFilter filters,
+                                                  @RequestParam(value = "page", defaultValue = "1") int page, 
+                                                  @RequestParam(value = "size", defaultValue = "10") int size) {
+        if(result.hasErrors() || search.getSearchText() == null){
             logger.error("Error occurs while searching: {}", result.getAllErrors());
+            ModelAndView model = new ModelAndView("main");
             model.addObject("includePage", JspPages.SEARCH);
-            return model;
+            return CompletableFuture.completedFuture(model);
         }
-
-        List<JobInfo> searchResult = jobService.caseSensitiveSearchResult(search.getSearchText().trim());     // case sensitive
-//        List<JobInfo> searchList = jobService.caseInsensitiveSearchResult(search.getSearchText().trim());   // case insensitive
         
-        model.addObject("searchResult", searchResult);
-        model.addObject("searchText", search.getSearchText());
-        model.addObject("includePage", JspPages.SEARCH);
+        int pageSize = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+        int currentPage = Math.min(Math.max(page, 1), Integer.MAX_VALUE / pageSize);   // the end of the page stays an int
+        String searchText = search.getSearchText().trim();
         
-        return model;
+        return searchBulkhead.submit(() -> {
+            ModelAndView model = new ModelAndView("main");
+            JobPage jobPage = jobService.search(searchText, filters, currentPage-1, pageSize);   // backend and case mode come from application.properties
+            searchResultSize.record(jobPage.getCount());
+            Pagination pagination = jobService.createPagination(jobPage.getCount(), currentPage, pageSize);
+
+            model.addObject("searchResult", jobPage.getJobs());
+            model.addObject("facets", jobPage.getFacets());
+            model.addObject("filterQuery", filters.toQueryString());
+            model.addObject("searchText", search.getSearchText());
+            model.addObject("resultCount", jobPage.getCount());
+            model.addObject("incomplete", jobPage.isIncomplete());
+            model.addObject("pagination", pagination);
+            model.addObject("size", pageSize);
+            model.addObject("includePage", JspPages.SEARCH);
+
+            return model;
+        });
     }
 
 
     @RequestMapping(value = "/sendMail", method = RequestMethod.POST)
-    public ModelAndView sendMail(@Valid @ModelAttribute("user") User user, BindingResult result, HttpServletRequest request) {
+    public CompletableFuture<ModelAndView> sendMail(@Valid @ModelAttribute("user") User user, BindingResult result, HttpServletRequest request) {
         ModelAndView model = new ModelAndView("main");
         model.addObject("includePage", JspPages.CONTACT);
 
-        if (result.hasErrors()) return model;
+        if (result.hasErrors()) return CompletableFuture.completedFuture(model);
         
         String ipAddress = request.getHeader("X-FORWARDED-FOR");
         if (ipAddress == null) 
@@ -130,18 +207,37 @@ public class IndexController {
         
         logger.info("Contact message info: {}", message);
         
-        String notif;
-        try {
-            jobService.sendMail(from, subject, message.toString());
-            notif = "Your message send successfully.";
-        } catch(Exception ex){
-            notif = "Something went wrong. Please try again later";
-            logger.error("Exception occurs when sending email", ex);
-        }
+        return mailBulkhead.submit(() -> {
+            String notif;
+            try {
+                jobService.sendMail(from, subject, message.toString());
+                notif = "Your message send successfully.";
+            } catch(Exception ex){
+                notif = "Something went wrong. Please try again later";
+                logger.error("Exception occurs when sending email", ex);
+            }
+
+            model.addObject("notif", notif);
 
-        model.addObject("notif", notif);
+            return model;
+        });
+    }
+    
+
+    /**
+     * Bulk insert of jobs, body is NDJSON (one JobInfo per line). Enabled with developerjobs.ingest.token,
+     * which is expected in X-Ingest-Token header. Search index and caches are refreshed shortly after,
+     * once for requests posted close together.
+     */
+    @RequestMapping(value = "/ingest", method = RequestMethod.POST)
+    @ResponseBody
+    public ResponseEntity<IngestResult> ingest(@RequestHeader(value = "X-Ingest-Token", required = false) String token, HttpServletRequest request) throws IOException {
+        if (!jobIngestService.accepts(token)) 
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         
-        return model;
+        IngestResult result = jobIngestService.ingest(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        
+        return new ResponseEntity<>(result, HttpStatus.OK);
     }
     
 
@@ -155,25 +251,25 @@ public class IndexController {
 
 
     @RequestMapping("/job/{id}/{title}")
-    public ModelAndView getJobDetail(@PathVariable("id") int id, @PathVariable("title") String title, @RequestParam(value = "searchText", defaultValue = "") String searchText) {
-        ModelAndView model = new ModelAndView("main");
-        JobInfo job = jobService.getJob(id, title);
-        
-        if(job == null){
-            logger.info("Job (id[{}], title[{}]) is not found", id, title);
-            model.addObject("includePage", JspPages.NOT_FOUND);
-            return model;
-        } 
-        
-        if(!searchText.equals("")){
-//            job.setContent(job.getContent().replaceAll("(?i)"+searchText, "<b style=\"color:blue;\">"+searchText+"</b>"));  // (?i) - for ignore case 
-            job.setContent(job.getContent().replaceAll(searchText, "<b style=\"color:blue;\">"+searchText+"</b>"));  // It needs modify..
-        }
+    public CompletableFuture<ModelAndView> getJobDetail(@PathVariable("id") int id, @PathVariable("title") String title, @RequestParam(value = "searchText", defaultValue = "") String searchText) {
+        return listingBulkhead.submit(() -> {
+            ModelAndView model = new ModelAndView("main");
+            JobInfo job = jobService.getJob(id, title);
 
-        model.addObject("job", job);
-        model.addObject("includePage", JspPages.JOB);
+            if(job == null){
+                logger.info("Job (id[{}], title[{}]) is not found", id, title);
+                model.addObject("includePage", JspPages.NOT_FOUND);
+                return model;
+            } 
 
-        return model;
+            String content = jobService.highlightContent(job, searchText);   // job is shared by the cache, it is not modified
+
+            model.addObject("job", job);
+            model.addObject("content", content);
+            model.addObject("includePage", JspPages.JOB);
+
+            return model;
+        });
     }
 
     
@@ -185,6 +281,18 @@ public class IndexController {
     }
 
 
+    /**
+     * A bulkhead is full
+     */
+    @ExceptionHandler(value = RejectedExecutionException.class)
+    public String handlerRejected(RejectedExecutionException e, HttpServletResponse response) {
+        logger.warn(e.getMessage());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        return "exception";
+    }
+
+
     @ModelAttribute
     public void addingCommonObjects(Model model) {
         model.addAttribute("user", new User());      //It needs for springForm:form tag
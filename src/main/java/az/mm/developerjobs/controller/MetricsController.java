@@ -0,0 +1,44 @@
+package az.mm.developerjobs.controller;
+
+import az.mm.developerjobs.metrics.Metrics;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Prometheus scrape endpoint. When developerjobs.metrics.token is set, it is expected as bearer token.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Controller
+public class MetricsController {
+
+    @Autowired
+    private Metrics metrics;
+
+    @Value("${developerjobs.metrics.token:}")
+    private String token;
+
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void metrics(@RequestHeader(value = "Authorization", required = false) String authorization,
+                        HttpServletResponse response) throws IOException {
+        if (!token.isEmpty() && (authorization == null || !MessageDigest.isEqual(("Bearer " + token).getBytes(StandardCharsets.UTF_8),
+                                                                                authorization.getBytes(StandardCharsets.UTF_8)))) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        metrics.write(response.getWriter());
+    }
+
+}
@@ -0,0 +1,44 @@
+package az.mm.developerjobs.controller;
+
+import az.mm.developerjobs.trace.SlowTrace;
+import az.mm.developerjobs.trace.Tracer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Last slow requests with their spans (JSON). Traces contain search texts and query arguments, so the
+ * endpoint is disabled while developerjobs.trace.token is empty; the token is sent as bearer token.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Controller
+public class TraceController {
+
+    @Autowired
+    private Tracer tracer;
+
+    @Value("${developerjobs.trace.token:}")
+    private String token;
+
+
+    @RequestMapping(value = "/admin/traces", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<List<SlowTrace>> slowTraces(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (token.isEmpty() || authorization == null
+                || !MessageDigest.isEqual(("Bearer " + token).getBytes(StandardCharsets.UTF_8), authorization.getBytes(StandardCharsets.UTF_8)))
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+        return new ResponseEntity<>(tracer.getSlowTraces(), HttpStatus.OK);
+    }
+
+}
@@ -0,0 +1,191 @@
+package az.mm.developerjobs.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves formatting and file I/O of log events off the request threads.
+ *
+ * Events go into a bounded queue, one worker thread takes them in batches, passes them to the
+ * attached appenders and flushes those once per batch (configure them with immediateFlush=false).
+ * When less than discardingThreshold places are free, INFO and lower events are dropped and counted
+ * (see droppedCount); WARN and ERROR wait for a place and are never dropped.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class AsyncBatchAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    private static final LongAdder DROPPED = new LongAdder();   // all instances, survives reconfiguration
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private int queueSize = 8192;
+    private int discardingThreshold = -1;   // default: queueSize / 5
+    private int maxBatchSize = 256;
+    private int maxFlushTime = 1000;        // ms to write what is queued when stopping
+
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread worker;
+
+
+    /**
+     * Events dropped because the queue was (nearly) full, since the application started
+     */
+    public static long droppedCount() {
+        return DROPPED.sum();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (queueSize < 1) {
+            addError("Invalid queueSize " + queueSize);
+            return;
+        }
+        if (discardingThreshold < 0) discardingThreshold = queueSize / 5;
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+        worker = new Thread(this::work, "log-writer-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+
+        worker.interrupt();   // the worker writes what is queued, then exits
+        try {
+            worker.join(maxFlushTime);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) addWarn("Queued events were not written within " + maxFlushTime + " ms");
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        boolean important = event.getLevel().isGreaterOrEqual(Level.WARN);
+        if (!important && queue.remainingCapacity() <= discardingThreshold) {
+            DROPPED.increment();
+            return;
+        }
+
+        event.prepareForDeferredProcessing();   // thread name, MDC and message are taken now
+        if (queue.offer(event)) return;
+        if (!important) {
+            DROPPED.increment();
+            return;
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException ex) {
+            DROPPED.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        List<ILoggingEvent> batch = new ArrayList<>(maxBatchSize);
+        while (isStarted()) {
+            try {
+                ILoggingEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                break;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            write(batch);
+        }
+
+        while (queue.drainTo(batch, maxBatchSize) > 0) write(batch);   // stopping: the rest
+    }
+
+    private void write(List<ILoggingEvent> batch) {
+        for (ILoggingEvent event : batch) appenders.appendLoopOnAppenders(event);
+        batch.clear();
+
+        for (Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders(); it.hasNext(); ) {
+            Appender<ILoggingEvent> appender = it.next();
+            if (!(appender instanceof OutputStreamAppender)) continue;
+            OutputStream out = ((OutputStreamAppender<ILoggingEvent>) appender).getOutputStream();
+            try {
+                if (out != null) out.flush();
+            } catch (IOException ex) {
+                addError("Could not flush " + appender.getName(), ex);
+            }
+        }
+    }
+
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setDiscardingThreshold(int discardingThreshold) {
+        this.discardingThreshold = discardingThreshold;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+}
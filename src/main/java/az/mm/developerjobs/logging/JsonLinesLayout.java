@@ -0,0 +1,79 @@
+package az.mm.developerjobs.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One JSON object per line:
+ * {"ts":"2018-05-01T10:00:00.123Z","level":"INFO","thread":"..","logger":"..","msg":"..","mdc":{..},"exception":".."}
+ *
+ * Caller data (line numbers) is not written, it is expensive to collect on the logging thread.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class JsonLinesLayout extends LayoutBase<ILoggingEvent> {
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.getTimeStamp())).append('"');
+        json.append(",\"level\":\"").append(event.getLevel()).append('"');
+        field(json, "thread", event.getThreadName());
+        field(json, "logger", event.getLoggerName());
+        field(json, "msg", event.getFormattedMessage());
+
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null && !mdc.isEmpty()) {
+            json.append(",\"mdc\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                string(json, entry.getKey()).append(':');
+                string(json, entry.getValue());
+            }
+            json.append('}');
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) field(json, "exception", ThrowableProxyUtil.asString(throwable));
+
+        return json.append('}').append(CoreConstants.LINE_SEPARATOR).toString();
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/x-ndjson";
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        string(json, value);
+    }
+
+    static StringBuilder string(StringBuilder json, String value) {
+        if (value == null) return json.append("null");
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+}
@@ -0,0 +1,84 @@
+package az.mm.developerjobs.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed bucket histogram, exposed as a Prometheus histogram.
+ *
+ * record() only increments two LongAdders, it doesn't allocate or lock, so it can be called on every
+ * request. Values are recorded as long (nanos for timers) and converted to the exposed unit on scrape.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class Histogram {
+
+    /** Timer buckets: 100 us .. 10 s */
+    static final long[] TIME_BUCKETS = nanos(0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10);
+    static final double NANOS_TO_SECONDS = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final long[] bounds;       // inclusive upper bounds, ascending
+    private final String[] le;         // bounds in the exposed unit
+    private final double scale;        // recorded unit -> exposed unit
+    private final LongAdder[] buckets; // one more than bounds: +Inf
+    private final LongAdder sum = new LongAdder();
+
+
+    Histogram(long[] bounds, double scale) {
+        this.bounds = bounds.clone();
+        this.scale = scale;
+        this.le = new String[bounds.length];
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            if (i > 0 && bounds[i] <= bounds[i - 1]) throw new IllegalArgumentException("Bounds must be ascending");
+            le[i] = BigDecimal.valueOf(bounds[i] * scale).stripTrailingZeros().toPlainString();
+        }
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long value) {
+        int i = 0;
+        while (i < bounds.length && value > bounds[i]) i++;
+        buckets[i].increment();
+        sum.add(value);
+    }
+
+    /**
+     * For timers: records the time passed since start (System.nanoTime())
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * Cumulative bucket counts, the last one (+Inf) is the total count
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) counts[i] = count += buckets[i].sum();
+        return counts;
+    }
+
+    String[] le() {
+        return le;
+    }
+
+    double sum() {
+        return sum.sum() * scale;
+    }
+
+    private static long[] nanos(double... seconds) {
+        long[] nanos = new long[seconds.length];
+        for (int i = 0; i < seconds.length; i++) nanos[i] = Math.round(seconds[i] * TimeUnit.SECONDS.toNanos(1));
+        return nanos;
+    }
+
+}
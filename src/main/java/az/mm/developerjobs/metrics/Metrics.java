@@ -0,0 +1,133 @@
+package az.mm.developerjobs.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the application metrics, written in Prometheus text format by GET /metrics.
+ *
+ * Timers and histograms are recorded by the code (see Histogram), counters and gauges of existing
+ * components (caches, pools, rate limiters) are read on scrape. Series are registered once and kept,
+ * callers hold the Histogram instead of looking it up per call.
+ *
+ * Labels are given as name, value pairs: metrics.timer("x_seconds", "help", "method", "search").
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class Metrics {
+
+    private enum Type { COUNTER, GAUGE, HISTOGRAM }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+
+    public Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.TIME_BUCKETS, Histogram.NANOS_TO_SECONDS, labels);
+    }
+
+    public Histogram histogram(String name, String help, long[] bounds, String... labels) {
+        return histogram(name, help, bounds, 1, labels);
+    }
+
+    private Histogram histogram(String name, String help, long[] bounds, double scale, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).series.computeIfAbsent(labels(labels), l -> new Histogram(bounds, scale));
+    }
+
+    /**
+     * A value which only grows, read on scrape. Name should end with _total.
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labels(labels), value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labels(labels), value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) throw new IllegalArgumentException(name + " is already registered as " + family.type);
+        return family;
+    }
+
+    /**
+     * name="value",.. with escaped values, used as series key too
+     */
+    private static String labels(String... labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("Labels must be name, value pairs");
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) text.append(',');
+            text.append(labels[i]).append("=\"")
+                .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append('"');
+        }
+        return text.toString();
+    }
+
+
+    /**
+     * Prometheus text format 0.0.4
+     */
+    public void write(Writer out) throws IOException {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                if (family.type == Type.HISTOGRAM) {
+                    writeHistogram(out, family.name, series.getKey(), (Histogram) series.getValue());
+                } else {
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) series.getValue()).getAsDouble();
+                    } catch (RuntimeException ex) {
+                        continue;   // e.g. the database is locked, skip this scrape
+                    }
+                    writeSample(out, family.name, series.getKey(), value);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeHistogram(Writer out, String name, String labels, Histogram histogram) throws IOException {
+        String separator = labels.isEmpty() ? "" : ",";
+        String[] le = histogram.le();
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            out.append(name).append("_bucket{").append(labels).append(separator)
+               .append("le=\"").append(i < le.length ? le[i] : "+Inf").append("\"} ").append(Long.toString(counts[i])).append('\n');
+        }
+        writeSample(out, name + "_sum", labels, histogram.sum());
+        writeSample(out, name + "_count", labels, counts[counts.length - 1]);
+    }
+
+    private static void writeSample(Writer out, String name, String labels, double value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ');
+        out.append(value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value));
+        out.append('\n');
+    }
+
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> series = new ConcurrentSkipListMap<>();   // labels -> Histogram or DoubleSupplier
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+}
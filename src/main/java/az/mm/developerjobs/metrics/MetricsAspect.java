@@ -0,0 +1,65 @@
+package az.mm.developerjobs.metrics;
+
+import az.mm.developerjobs.trace.RequestTrace;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public JobService method and every JobRepository query, one series per method name.
+ * The calls are also recorded as spans of the request trace, with ImageClassifier.imageSource.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+    @Autowired
+    private Metrics metrics;
+
+    private final ConcurrentHashMap<Method, Histogram> timers = new ConcurrentHashMap<>();
+
+
+    @Around("execution(public * az.mm.developerjobs.service.JobService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "developerjobs_service_seconds", "Time spent in JobService methods");
+    }
+
+    @Around("execution(* az.mm.developerjobs.repository.JobRepository.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "developerjobs_repository_seconds", "Time spent in JobRepository queries");
+    }
+
+    @Around("execution(public String az.mm.developerjobs.service.ImageClassifier.imageSource(..))")
+    public Object traceImageSource(ProceedingJoinPoint joinPoint) throws Throwable {
+        int span = RequestTrace.enter(((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint.getArgs());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RequestTrace.exit(span);
+        }
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, String help) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Histogram timer = timers.get(method);
+        if (timer == null)
+            timer = timers.computeIfAbsent(method, m -> metrics.timer(name, help, "method", m.getName()));
+
+        int span = RequestTrace.enter(method, joinPoint.getArgs());
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.recordSince(start);
+            RequestTrace.exit(span);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package az.mm.developerjobs.metrics;
+
+import az.mm.developerjobs.config.SQLitePool;
+import az.mm.developerjobs.logging.AsyncBatchAppender;
+import az.mm.developerjobs.service.JobService;
+import az.mm.developerjobs.service.LruCache;
+import az.mm.developerjobs.service.MailOutbox;
+import az.mm.developerjobs.service.SearchIndex;
+import az.mm.developerjobs.web.Bulkhead;
+import az.mm.developerjobs.web.RateLimitInterceptor;
+import az.mm.developerjobs.web.RateLimiter;
+import az.mm.developerjobs.web.ResponseCacheFilter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes statistics the components keep anyway: connection pools, caches, rate limiters, bulkheads,
+ * the mail outbox and dropped log events. They are read on scrape, nothing is added to the request path.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class ResourceMetrics {
+
+    @Autowired
+    private Metrics metrics;
+
+    @Autowired
+    private List<SQLitePool> pools;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private ResponseCacheFilter responseCacheFilter;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private List<Bulkhead> bulkheads;
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+
+    @PostConstruct
+    public void register() {
+        for (SQLitePool pool : pools) {
+            String name = pool.getName();
+            metrics.gauge("jdbc_connections_max", "Size of the connection pool", pool::getMaxActive, "pool", name);
+            metrics.gauge("jdbc_connections_active", "Connections in use", pool::getActive, "pool", name);
+            metrics.gauge("jdbc_connections_idle", "Idle connections", pool::getIdle, "pool", name);
+            metrics.gauge("jdbc_connections_pending", "Threads waiting for a connection", pool::getWaiting, "pool", name);
+            metrics.counter("jdbc_connection_borrows_total", "Connections taken from the pool", pool::getBorrowCount, "pool", name);
+            metrics.counter("jdbc_connection_wait_seconds_total", "Time spent waiting for connections",
+                            () -> pool.getTotalWaitMillis() / 1000.0, "pool", name);
+            metrics.gauge("jdbc_connection_wait_seconds_max", "Longest wait for a connection",
+                          () -> pool.getMaxWaitMillis() / 1000.0, "pool", name);
+        }
+
+        List<LruCache<?, ?>> caches = new ArrayList<>(jobService.getCaches());
+        caches.add(searchIndex.getCache());
+        caches.add(responseCacheFilter.getCache());
+        for (LruCache<?, ?> cache : caches) {
+            String name = cache.getName();
+            metrics.gauge("cache_size", "Entries in the cache", cache::size, "cache", name);
+            metrics.gauge("cache_weight", "Weight of the entries (jobs, chars or bytes)", cache::weight, "cache", name);
+            metrics.counter("cache_hits_total", "Cache hits", cache::hitCount, "cache", name);
+            metrics.counter("cache_misses_total", "Cache misses", cache::missCount, "cache", name);
+            metrics.counter("cache_evictions_total", "Entries evicted for space", cache::evictionCount, "cache", name);
+        }
+
+        for (RateLimiter limiter : rateLimitInterceptor.getLimiters()) {
+            String name = limiter.getName();
+            metrics.gauge("rate_limit_clients", "Clients with a bucket", limiter::size, "limiter", name);
+            metrics.counter("rate_limit_allowed_total", "Requests within the limit", limiter::allowedCount, "limiter", name);
+            metrics.counter("rate_limit_rejected_total", "Requests rejected with 429", limiter::rejectedCount, "limiter", name);
+        }
+
+        for (Bulkhead bulkhead : bulkheads) {
+            String name = bulkhead.getName();
+            metrics.gauge("bulkhead_threads", "Threads of the bulkhead, 0 - handlers run on servlet threads", bulkhead::getThreads, "bulkhead", name);
+            metrics.gauge("bulkhead_active", "Threads running a handler", bulkhead::getActive, "bulkhead", name);
+            metrics.gauge("bulkhead_queued", "Handlers waiting for a thread", bulkhead::getQueued, "bulkhead", name);
+            metrics.counter("bulkhead_rejected_total", "Requests rejected with 503 because the queue was full", bulkhead::rejectedCount, "bulkhead", name);
+        }
+
+        metrics.gauge("mail_outbox_pending", "Contact messages waiting for delivery", mailOutbox::countPending);
+        metrics.counter("log_events_dropped_total", "Log events below WARN dropped because the log queue was full",
+                        AsyncBatchAppender::droppedCount);
+    }
+
+}
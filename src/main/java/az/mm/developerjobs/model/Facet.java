@@ -0,0 +1,63 @@
+package az.mm.developerjobs.model;
+
+import az.mm.developerjobs.constant.JobFacet;
+import java.util.List;
+
+/**
+ * Values of one facet with the number of jobs each would give, shown beside the result page.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class Facet {
+    private final JobFacet facet;
+    private final List<Value> values;
+
+    public Facet(JobFacet facet, List<Value> values) {
+        this.facet = facet;
+        this.values = values;
+    }
+
+    public String getParam() {
+        return facet.getParam();
+    }
+
+    public String getTitle() {
+        return facet.getTitle();
+    }
+
+    public List<Value> getValues() {
+        return values;
+    }
+
+
+    public static class Value {
+        private final String value;
+        private final String label;
+        private final int count;
+        private final boolean selected;
+
+        public Value(String value, String label, int count, boolean selected) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+            this.selected = selected;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isSelected() {
+            return selected;
+        }
+    }
+    
+}
@@ -0,0 +1,83 @@
+package az.mm.developerjobs.model;
+
+import az.mm.developerjobs.constant.JobFacet;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selected facet values, bound from repeated request parameters (website=a&website=b&jobType=c).
+ * Values of one facet are OR-ed, facets are AND-ed.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class FacetFilter {
+    
+    private List<String> website = new ArrayList<>();
+    private List<String> location = new ArrayList<>();
+    private List<String> jobType = new ArrayList<>();
+    private List<String> country = new ArrayList<>();
+
+    public List<String> get(JobFacet facet) {
+        switch (facet) {
+            case WEBSITE:  return website;
+            case LOCATION: return location;
+            case JOB_TYPE: return jobType;
+            default:       return country;
+        }
+    }
+
+    public boolean isEmpty() {
+        return website.isEmpty() && location.isEmpty() && jobType.isEmpty() && country.isEmpty();
+    }
+
+    /**
+     * @return "&param=value..." of the selected values, appended to page links
+     */
+    public String toQueryString() {
+        StringBuilder query = new StringBuilder();
+        try {
+            for (JobFacet facet : JobFacet.values()) {
+                for (String value : get(facet)) 
+                    query.append('&').append(facet.getParam()).append('=').append(URLEncoder.encode(value, "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return query.toString();
+    }
+
+    public List<String> getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(List<String> website) {
+        this.website = website;
+    }
+
+    public List<String> getLocation() {
+        return location;
+    }
+
+    public void setLocation(List<String> location) {
+        this.location = location;
+    }
+
+    public List<String> getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(List<String> jobType) {
+        this.jobType = jobType;
+    }
+
+    public List<String> getCountry() {
+        return country;
+    }
+
+    public void setCountry(List<String> country) {
+        this.country = country;
+    }
+    
+}
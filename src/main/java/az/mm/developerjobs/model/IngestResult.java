@@ -0,0 +1,54 @@
+package az.mm.developerjobs.model;
+
+/**
+ * Response of /ingest
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class IngestResult {
+    private int received;
+    private int inserted;
+    private int duplicates;
+    private int invalid;
+
+    public IngestResult() {
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(int invalid) {
+        this.invalid = invalid;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestResult{" + "received=" + received + ", inserted=" + inserted + ", duplicates=" + duplicates + ", invalid=" + invalid + '}';
+    }
+    
+}
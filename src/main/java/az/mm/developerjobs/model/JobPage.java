@@ -0,0 +1,44 @@
+package az.mm.developerjobs.model;
+
+import java.util.List;
+
+/**
+ * One page of a filtered search or listing: the jobs, count of all matching jobs and facet counts.
+ * An incomplete page comes from a search stopped at its time budget, jobs and counts may be missing.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class JobPage {
+    private final List<JobSummary> jobs;
+    private final int count;
+    private final List<Facet> facets;
+    private final boolean incomplete;
+
+    public JobPage(List<JobSummary> jobs, int count, List<Facet> facets) {
+        this(jobs, count, facets, false);
+    }
+
+    public JobPage(List<JobSummary> jobs, int count, List<Facet> facets, boolean incomplete) {
+        this.jobs = jobs;
+        this.count = count;
+        this.facets = facets;
+        this.incomplete = incomplete;
+    }
+
+    public List<JobSummary> getJobs() {
+        return jobs;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public List<Facet> getFacets() {
+        return facets;
+    }
+
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+}
@@ -0,0 +1,128 @@
+
+package az.mm.developerjobs.model;
+
+/**
+ * List view of a vacancy (jobs.jsp, search.jsp). It is selected with a JPQL constructor expression,
+ * so the content column is never read for list pages and nothing is kept in the persistence context.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class JobSummary {
+    private int id;
+    private String jobTitle;
+    private String company;
+    private String salary;
+    private String published;
+    private String deadline;
+    private String website;
+    private String insertDate;
+    private String location;
+    private String urlSuffix;
+    private String imageSrc;
+
+    public JobSummary() {
+    }
+
+    public JobSummary(int id, String jobTitle, String company, String salary, String published, String deadline, 
+                      String website, String insertDate, String location, String urlSuffix) {
+        this.id = id;
+        this.jobTitle = jobTitle;
+        this.company = company;
+        this.salary = salary;
+        this.published = published;
+        this.deadline = deadline;
+        this.website = website;
+        this.insertDate = insertDate;
+        this.location = location;
+        this.urlSuffix = urlSuffix;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getJobTitle() {
+        return jobTitle;
+    }
+
+    public void setJobTitle(String jobTitle) {
+        this.jobTitle = jobTitle;
+    }
+
+    public String getCompany() {
+        return company;
+    }
+
+    public void setCompany(String company) {
+        this.company = company;
+    }
+
+    public String getSalary() {
+        return salary;
+    }
+
+    public void setSalary(String salary) {
+        this.salary = salary;
+    }
+
+    public String getPublished() {
+        return published;
+    }
+
+    public void setPublished(String published) {
+        this.published = published;
+    }
+
+    public String getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(String deadline) {
+        this.deadline = deadline;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
+    public String getInsertDate() {
+        return insertDate;
+    }
+
+    public void setInsertDate(String insertDate) {
+        this.insertDate = insertDate;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getUrlSuffix() {
+        return urlSuffix;
+    }
+
+    public void setUrlSuffix(String urlSuffix) {
+        this.urlSuffix = urlSuffix;
+    }
+
+    public String getImageSrc() {
+        return imageSrc;
+    }
+
+    public void setImageSrc(String imageSrc) {
+        this.imageSrc = imageSrc;
+    }
+    
+}
@@ -1,9 +1,11 @@
 package az.mm.developerjobs.repository;
 
 import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import java.util.Collection;
 import java.util.List;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,20 +16,34 @@ import org.springframework.data.repository.query.Param;
  */
 public interface JobRepository extends JpaRepository<JobInfo, Integer> {
     
-    JobInfo findById(int id);
+    /* list views select this instead of the entity, content column is loaded by getJob only */
+    String SUMMARY = "new az.mm.developerjobs.model.JobSummary(j.id, j.jobTitle, j.company, j.salary, j.published, j.deadline, j.website, j.insertDate, j.location, j.urlSuffix)";
     
     JobInfo findByIdAndUrlSuffix(int id, String urlSuffix);
     
-    List<JobInfo> findAllByCountryCode(String countryCode);
+    /* Slice - no count query with the page */
+    @Query("select " + SUMMARY + " from JobInfo j where j.countryCode = :countryCode order by j.id desc")
+    Slice<JobSummary> findSummariesByCountryCode(@Param("countryCode") String countryCode, Pageable page);
     
-    Page<JobInfo> findAllByCountryCode(String countryCode, Pageable page);
-
-    int countByCountryCode(String countryCode);
+    /* keyset pagination, uses all_vacancies_country_id index */
+    @Query("select " + SUMMARY + " from JobInfo j where j.countryCode = :countryCode and j.id < :lastSeenId order by j.id desc")
+    List<JobSummary> findSummariesAfter(@Param("countryCode") String countryCode, @Param("lastSeenId") int lastSeenId, Pageable page);
+    
+    @Query("select " + SUMMARY + " from JobInfo j where j.id in :ids")
+    List<JobSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+    
+    @Query("select j.countryCode, count(j) from JobInfo j group by j.countryCode")
+    List<Object[]> countGroupByCountryCode();
+    
+    /* native queries below return ids only, list views are loaded with findSummariesByIdIn */
+    @Query(value = "select id from all_vacancies where country_code = :countryCode order by id desc limit :start, :limit", nativeQuery = true)
+    List<Number> getJobIdsWithLimit(@Param("countryCode") String countryCode, @Param("start") int start, @Param("limit") int limit);
     
-    @Query(value = "select * from all_vacancies where country_code = :countryCode order by id desc limit :start, :limit", nativeQuery = true)
-    List<JobInfo> getJobsWithLimit(@Param("countryCode") String countryCode, @Param("start") int start, @Param("limit") int limit);
+    @Query(value = "select id from all_vacancies where job_title like %?1% or company like %?1% or content like %?1% order by id desc limit ?2, ?3", nativeQuery = true)
+    List<Number> searchResultIds(String searchText, int start, int limit);
     
-    @Query(value = "select * from all_vacancies where job_title like %?1% or company like %?1% or content like %?1% order by id desc", nativeQuery = true)
-    List<JobInfo> searchResult(String searchText);
+    /* matchQuery is FTS5 syntax; bm25 weights: job_title 10, company 5, content 1 */
+    @Query(value = "select rowid from all_vacancies_fts where all_vacancies_fts match :matchQuery order by bm25(all_vacancies_fts, 10.0, 5.0, 1.0) limit :start, :limit", nativeQuery = true)
+    List<Number> fullTextSearchIds(@Param("matchQuery") String matchQuery, @Param("start") int start, @Param("limit") int limit);
     
 }
@@ -0,0 +1,25 @@
+package az.mm.developerjobs.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by DataVersion when all_vacancies is changed; caches derived from the table listen to it.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class DataChangedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long version;
+
+    public DataChangedEvent(Object source, long version) {
+        super(source);
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+}
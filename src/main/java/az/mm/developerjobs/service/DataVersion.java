@@ -0,0 +1,87 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.config.SchemaInitializer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version of all_vacancies data. The scraper writes into the database file directly, so the table
+ * marker (max id, row count, last insert date and the all_vacancies_changes counter kept by triggers,
+ * which also moves on updates in place) is polled and a DataChangedEvent is published when it moves.
+ * Writers inside the application call changedLater() instead of waiting for the poll: their changes
+ * are published together by the next refresh (developerjobs.data-version.refresh-delay), so many small
+ * writes cost one rebuild of the indexes and caches.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class DataVersion {
+
+    private final Logger logger = LoggerFactory.getLogger(DataVersion.class);
+
+    private static final String MARKER_QUERY = "select coalesce(max(id), 0) || '/' || count(*) || '/' || coalesce(max(insert_date), '') from all_vacancies";
+    private static final String CHANGES_QUERY = "select changes from all_vacancies_changes where id = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SchemaInitializer schemaInitializer;
+
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile String marker;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+
+    public long current() {
+        return version.get();
+    }
+
+    @Scheduled(fixedDelayString = "${developerjobs.data-version.check-interval:60000}")
+    public void check() {
+        String current = marker();
+        if (marker == null) {
+            marker = current;   // first check, caches are loaded against this data
+        } else if (!marker.equals(current)) {
+            logger.info("all_vacancies changed: {} -> {}", marker, current);
+            marker = current;
+            pending.set(false);   // published now
+            changed();
+        }
+    }
+
+    private String marker() {
+        String marker = jdbcTemplate.queryForObject(MARKER_QUERY, String.class);
+        if (!schemaInitializer.isChangeCounterAvailable()) return marker;   // inserts and deletes only
+
+        return marker + '/' + jdbcTemplate.queryForObject(CHANGES_QUERY, Long.class);
+    }
+
+    /**
+     * Reports a change made by the application, it is published by the next publishPending()
+     */
+    public void changedLater() {
+        pending.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${developerjobs.data-version.refresh-delay:2000}")
+    public void publishPending() {
+        if (pending.getAndSet(false)) changed();
+    }
+
+    public synchronized void changed() {
+        marker = marker();   // the poll must not report the same change again
+        eventPublisher.publishEvent(new DataChangedEvent(this, version.incrementAndGet()));
+    }
+
+}
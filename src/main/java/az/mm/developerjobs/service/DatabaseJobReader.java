@@ -0,0 +1,77 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import az.mm.developerjobs.repository.JobRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads from SQLite through JPA, list views as JobSummary projections; used when developerjobs.storage = DATABASE.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class DatabaseJobReader implements JobReader {
+
+    private static final int ID_BATCH = 500;   // keep "id in (...)" below SQLite variable limit
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private PageBoundaryCache pageBoundaryCache;
+
+
+    /**
+     * Keyset (seek) page, the boundary comes from PageBoundaryCache
+     */
+    @Override
+    public List<JobSummary> findSummaries(String countryCode, int pageIndex) {
+        int lastSeenId = pageBoundaryCache.lastSeenId(countryCode, pageIndex);
+        if (lastSeenId == PageBoundaryCache.NO_PAGE) return new ArrayList<>();
+
+        return new ArrayList<>(jobRepository.findSummariesAfter(countryCode, lastSeenId, new PageRequest(0, PageBoundaryCache.PAGE_SIZE)));
+    }
+
+    @Override
+    public List<JobSummary> findSummaries(int[] ids) {
+        Map<Integer, JobSummary> jobsById = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += ID_BATCH) {
+            List<Integer> batch = new ArrayList<>(ID_BATCH);
+            for (int i = from, to = Math.min(from + ID_BATCH, ids.length); i < to; i++) 
+                batch.add(ids[i]);
+            jobRepository.findSummariesByIdIn(batch).forEach(j -> jobsById.put(j.getId(), j));
+        }
+
+        List<JobSummary> jobs = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            JobSummary j = jobsById.get(id);
+            if (j != null) jobs.add(j);
+        }
+
+        return jobs;
+    }
+
+    @Override
+    public JobInfo findByIdAndUrlSuffix(int id, String urlSuffix) {
+        return jobRepository.findByIdAndUrlSuffix(id, urlSuffix);
+    }
+
+    @Override
+    public Map<String, Integer> countGroupByCountryCode() {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        for (Object[] row : jobRepository.countGroupByCountryCode()) {
+            if (row[0] != null) counts.put((String) row[0], ((Number) row[1]).intValue());
+        }
+
+        return counts;
+    }
+
+}
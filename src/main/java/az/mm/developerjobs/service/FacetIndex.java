@@ -0,0 +1,178 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.JobFacet;
+import az.mm.developerjobs.model.Facet;
+import az.mm.developerjobs.model.FacetFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Facet value -> IdBitmap of its jobs, for website, location (city), job type and country of all_vacancies.
+ *
+ * Filters are resolved on the bitmaps only: values of a facet are OR-ed, facets are AND-ed. Counts are
+ * disjunctive: the values of a facet are counted against the base set and the filters of the other facets,
+ * so choosing a second value of the same facet still shows how many jobs it adds.
+ *
+ * Bitmaps are built once from all_vacancies and rebuilt when the data changes.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class FacetIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(FacetIndex.class);
+
+    private static final String FACET_QUERY = "select id, website, location, job_type, country_code from all_vacancies order by id";
+    private static final int SHOWN_VALUES = 10;   // values with the highest counts, selected values are shown too
+
+    private static final Map<String, String> COUNTRY_NAMES = new HashMap<>();
+    static {
+        COUNTRY_NAMES.put("031", "Azerbaijan");
+        COUNTRY_NAMES.put("840", "USA");
+        COUNTRY_NAMES.put("276", "Germany");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<JobFacet, Map<String, IdBitmap>> bitmaps = new Builder().build();
+
+
+    @PostConstruct
+    public void build() {
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder();
+        jdbcTemplate.query(FACET_QUERY, (RowCallbackHandler) rs -> builder.add(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        load(builder);
+        logger.info("Facet index built: {} values in {} ms", bitmaps.values().stream().mapToInt(Map::size).sum(), System.currentTimeMillis() - start);
+    }
+
+    void load(Builder builder) {
+        bitmaps = builder.build();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before response caches of JobService are cleared
+    public void onDataChanged(DataChangedEvent event) {
+        build();
+    }
+
+    /**
+     * @return jobs having the value, empty for an unknown value
+     */
+    public IdBitmap get(JobFacet facet, String value) {
+        return bitmaps.get(facet).getOrDefault(value, IdBitmap.EMPTY);
+    }
+
+    /**
+     * @return jobs matching the selected values of the given facets, null when none is selected (no restriction)
+     */
+    public IdBitmap filter(FacetFilter filter, Collection<JobFacet> facets) {
+        return filter(bitmaps, filter, facets, null);
+    }
+
+    private static IdBitmap filter(Map<JobFacet, Map<String, IdBitmap>> bitmaps, FacetFilter filter, Collection<JobFacet> facets, JobFacet except) {
+        IdBitmap result = null;
+        for (JobFacet facet : facets) {
+            List<String> selected = filter.get(facet);
+            if (facet == except || selected.isEmpty()) continue;
+
+            IdBitmap any = IdBitmap.EMPTY;
+            for (String value : selected)
+                any = any.or(bitmaps.get(facet).getOrDefault(value, IdBitmap.EMPTY));
+            result = result == null ? any : result.and(any);
+        }
+        return result;
+    }
+
+    /**
+     * Counts of the values of the given facets within base, each facet filtered by the others
+     */
+    public List<Facet> count(IdBitmap base, FacetFilter filter, Collection<JobFacet> facets) {
+        Map<JobFacet, Map<String, IdBitmap>> bitmaps = this.bitmaps;
+        List<Facet> result = new ArrayList<>(facets.size());
+        for (JobFacet facet : facets) {
+            IdBitmap others = filter(bitmaps, filter, facets, facet);
+            IdBitmap jobs = others == null ? base : base.and(others);
+            List<String> selected = filter.get(facet);
+
+            List<Facet.Value> values = new ArrayList<>();
+            bitmaps.get(facet).forEach((value, ids) -> {
+                int count = jobs.andCardinality(ids);
+                if (count > 0 || selected.contains(value))
+                    values.add(new Facet.Value(value, label(facet, value), count, selected.contains(value)));
+            });
+            values.sort((v1, v2) -> v1.getCount() != v2.getCount() ? v2.getCount() - v1.getCount() : v1.getLabel().compareTo(v2.getLabel()));
+
+            List<Facet.Value> shown = new ArrayList<>(values.subList(0, Math.min(SHOWN_VALUES, values.size())));
+            for (Facet.Value value : values.subList(shown.size(), values.size())) {
+                if (value.isSelected()) shown.add(value);
+            }
+            if (!shown.isEmpty()) result.add(new Facet(facet, shown));
+        }
+        return result;
+    }
+
+    private static String label(JobFacet facet, String value) {
+        return facet == JobFacet.COUNTRY ? COUNTRY_NAMES.getOrDefault(value, value) : value;
+    }
+
+
+    /**
+     * Collects ids per value; rows must come in ascending id order.
+     */
+    static final class Builder {
+        private final Map<JobFacet, Map<String, Ids>> ids = new EnumMap<>(JobFacet.class);
+
+        Builder() {
+            for (JobFacet facet : JobFacet.values()) ids.put(facet, new HashMap<>());
+        }
+
+        void add(int id, String website, String location, String jobType, String countryCode) {
+            add(JobFacet.WEBSITE, id, website);
+            add(JobFacet.LOCATION, id, location == null ? null : location.split(",", 2)[0]);   // "Orlando, FL" -> Orlando
+            add(JobFacet.JOB_TYPE, id, jobType);
+            add(JobFacet.COUNTRY, id, countryCode);
+        }
+
+        private void add(JobFacet facet, int id, String value) {
+            if (value == null || (value = value.trim()).isEmpty()) return;
+
+            Ids values = ids.get(facet).computeIfAbsent(value, v -> new Ids());
+            if (values.size == values.ids.length) values.ids = Arrays.copyOf(values.ids, values.size * 2);
+            values.ids[values.size++] = id;
+        }
+
+        Map<JobFacet, Map<String, IdBitmap>> build() {
+            Map<JobFacet, Map<String, IdBitmap>> bitmaps = new EnumMap<>(JobFacet.class);
+            ids.forEach((facet, values) -> {
+                Map<String, IdBitmap> byValue = new HashMap<>(values.size() * 2);
+                values.forEach((value, v) -> byValue.put(value, IdBitmap.of(Arrays.copyOf(v.ids, v.size))));
+                bitmaps.put(facet, Collections.unmodifiableMap(byValue));
+            });
+            return bitmaps;
+        }
+
+        private static final class Ids {
+            private int[] ids = new int[4];
+            private int size;
+        }
+    }
+
+}
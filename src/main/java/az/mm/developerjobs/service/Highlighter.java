@@ -0,0 +1,142 @@
+package az.mm.developerjobs.service;
+
+import java.util.Arrays;
+import org.springframework.stereotype.Component;
+
+/**
+ * Highlights a search term in job content (HTML) for /job/{id}/{title}?searchText=..
+ *
+ * The term is matched literally with Boyer-Moore-Horspool, in one pass over the text between
+ * tags and entities, so markup is never broken. Matched text is copied from the content itself;
+ * the user supplied term is never written into the page.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class Highlighter {
+
+    static final String OPEN = "<b style=\"color:blue;\">";
+    static final String CLOSE = "</b>";
+
+    private static final String[] RAW_TEXT_ELEMENTS = {"style", "script"};
+    private static final int MAX_TERM_LENGTH = 100;
+    private static final int MAX_KEPT_CAPACITY = 1 << 20;   // don't keep huge builders per thread
+
+    private final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+
+    /**
+     * @return html with every occurrence of term wrapped into OPEN/CLOSE, the same instance when nothing is found
+     */
+    public String highlight(String html, String term, boolean caseSensitive) {
+        if (html == null || term == null || term.isEmpty() || term.length() > MAX_TERM_LENGTH || term.length() > html.length())
+            return html;
+
+        int m = term.length();
+        char[] pattern = new char[m];
+        for (int k = 0; k < m; k++) pattern[k] = fold(term.charAt(k), caseSensitive);
+
+        int[] shifts = new int[128];
+        Arrays.fill(shifts, m);
+        for (int k = 0; k < m - 1; k++) {
+            if (pattern[k] < 128) shifts[pattern[k]] = m - 1 - k;
+        }
+
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0, n = html.length();
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                i = skipTag(html, i);
+                continue;
+            }
+            int entity = c == '&' ? entityEnd(html, i) : -1;
+            if (entity > 0) {
+                i = entity;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < n && html.charAt(end) != '<' && !(html.charAt(end) == '&' && entityEnd(html, end) > 0)) end++;
+
+            // Boyer-Moore-Horspool in text segment [i, end)
+            int pos = i;
+            while (pos + m <= end) {
+                int k = m - 1;
+                while (k >= 0 && fold(html.charAt(pos + k), caseSensitive) == pattern[k]) k--;
+                if (k < 0) {
+                    if (out == null) out = builder();
+                    out.append(html, copied, pos).append(OPEN).append(html, pos, pos + m).append(CLOSE);
+                    copied = pos + m;
+                    pos += m;
+                } else {
+                    char last = fold(html.charAt(pos + m - 1), caseSensitive);
+                    pos += last < 128 ? shifts[last] : shift(pattern, last);
+                }
+            }
+            i = end;
+        }
+
+        if (out == null) return html;
+        out.append(html, copied, n);
+        String result = out.toString();
+        if (out.capacity() > MAX_KEPT_CAPACITY) builders.remove();
+
+        return result;
+    }
+
+    /**
+     * @return index after the tag at i; for style and script after the whole element, their text is not content
+     */
+    private static int skipTag(String html, int i) {
+        int from = i;
+        for (String element : RAW_TEXT_ELEMENTS) {
+            int after = i + 1 + element.length();
+            if (after < html.length() && html.regionMatches(true, i + 1, element, 0, element.length())
+                    && (html.charAt(after) == '>' || html.charAt(after) == '/' || Character.isWhitespace(html.charAt(after)))) {
+                int close = html.indexOf("</", after);
+                while (close >= 0 && !html.regionMatches(true, close + 2, element, 0, element.length())) close = html.indexOf("</", close + 2);
+                if (close < 0) return html.length();
+                from = close;
+                break;
+            }
+        }
+        int close = html.indexOf('>', from);
+        return close < 0 ? html.length() : close + 1;
+    }
+
+    private StringBuilder builder() {
+        StringBuilder builder = builders.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static char fold(char c, boolean caseSensitive) {
+        return caseSensitive ? c : Character.toLowerCase(c);
+    }
+
+    /**
+     * Horspool shift of a non-ASCII char, pattern is short so it is searched directly.
+     */
+    private static int shift(char[] pattern, char c) {
+        int m = pattern.length;
+        for (int k = m - 2; k >= 0; k--) {
+            if (pattern[k] == c) return m - 1 - k;
+        }
+        return m;
+    }
+
+    /**
+     * @return index after ';' of an entity (&amp; &#39; &#x27;) starting at i, -1 if it is a plain '&'
+     */
+    private static int entityEnd(String html, int i) {
+        for (int j = i + 1, limit = Math.min(html.length(), i + 12); j < limit; j++) {
+            char c = html.charAt(j);
+            if (c == ';') return j > i + 1 ? j + 1 : -1;
+            if (!(Character.isLetterOrDigit(c) || (c == '#' && j == i + 1))) return -1;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,324 @@
+package az.mm.developerjobs.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed set of job ids, laid out like a Roaring bitmap.
+ *
+ * Ids are grouped by their high 16 bits. A group holds its low 16 bits as a sorted char[] while it has
+ * at most 4096 of them (8 KiB at most), above that as a long[1024] bitmap (always 8 KiB). Sets are
+ * combined group by group, so AND/OR and counting never touch ids outside the groups both sets have.
+ * Results may share groups with their operands, which is safe because nothing is ever modified.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public final class IdBitmap {
+
+    public static final IdBitmap EMPTY = new IdBitmap(new char[0], new Object[0], new int[0], 0);
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private final char[] keys;          // high 16 bits, ascending
+    private final Object[] containers;  // char[] (sorted low bits) or long[] (bitmap)
+    private final int[] cardinalities;
+    private final int size;             // used entries of the arrays above
+
+
+    private IdBitmap(char[] keys, Object[] containers, int[] cardinalities, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinalities = cardinalities;
+        this.size = size;
+    }
+
+    /**
+     * @param ids non-negative ids, ascending or descending (e.g. a search result) or in any order
+     */
+    public static IdBitmap of(int[] ids) {
+        int[] sorted = ascending(ids);
+        int groups = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] >>> 16 != sorted[i - 1] >>> 16) groups++;
+        }
+
+        char[] keys = new char[groups];
+        Object[] containers = new Object[groups];
+        int[] cardinalities = new int[groups];
+        int group = 0;
+        for (int from = 0; from < sorted.length; group++) {
+            int key = sorted[from] >>> 16;
+            int to = from;
+            while (to < sorted.length && sorted[to] >>> 16 == key) to++;
+
+            char[] low = new char[to - from];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                if (n == 0 || low[n - 1] != (char) sorted[i]) low[n++] = (char) sorted[i];   // duplicates
+            }
+            keys[group] = (char) key;
+            containers[group] = n > ARRAY_MAX ? toBitmap(low, n) : (n == low.length ? low : Arrays.copyOf(low, n));
+            cardinalities[group] = n;
+            from = to;
+        }
+        return new IdBitmap(keys, containers, cardinalities, groups);
+    }
+
+    private static int[] ascending(int[] ids) {
+        boolean asc = true, desc = true;
+        for (int i = 1; i < ids.length && (asc || desc); i++) {
+            if (ids[i] < ids[i - 1]) asc = false;
+            if (ids[i] > ids[i - 1]) desc = false;
+        }
+        if (asc) return ids;
+
+        int[] sorted = new int[ids.length];
+        if (desc) {
+            for (int i = 0; i < ids.length; i++) sorted[i] = ids[ids.length - 1 - i];
+        } else {
+            System.arraycopy(ids, 0, sorted, 0, ids.length);
+            Arrays.sort(sorted);
+        }
+        return sorted;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += cardinalities[i];
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (id >>> 16));
+        return i >= 0 && contains(containers[i], cardinalities[i], (char) id);
+    }
+
+    public IdBitmap and(IdBitmap other) {
+        int capacity = Math.min(size, other.size);
+        char[] k = new char[capacity];
+        Object[] c = new Object[capacity];
+        int[] n = new int[capacity];
+        int count = 0;
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else {
+                Object container = and(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                int cardinality = cardinality(container);
+                if (cardinality > 0) {
+                    k[count] = keys[i];
+                    c[count] = container;
+                    n[count++] = cardinality;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new IdBitmap(k, c, n, count);
+    }
+
+    public IdBitmap or(IdBitmap other) {
+        int capacity = size + other.size;
+        char[] k = new char[capacity];
+        Object[] c = new Object[capacity];
+        int[] n = new int[capacity];
+        int count = 0, i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                k[count] = keys[i];
+                c[count] = containers[i];
+                n[count++] = cardinalities[i++];
+            } else if (i == size || keys[i] > other.keys[j]) {
+                k[count] = other.keys[j];
+                c[count] = other.containers[j];
+                n[count++] = other.cardinalities[j++];
+            } else {
+                Object container = or(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                k[count] = keys[i];
+                c[count] = container;
+                n[count++] = cardinality(container);
+                i++;
+                j++;
+            }
+        }
+        return new IdBitmap(k, c, n, count);
+    }
+
+    /**
+     * Size of the intersection, without building it
+     */
+    public int andCardinality(IdBitmap other) {
+        int cardinality = 0;
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else cardinality += andCardinality(containers[i++], cardinalities[i - 1], other.containers[j++], other.cardinalities[j - 1]);
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return the ids which are in this set, in their order (the same array if all are)
+     */
+    public int[] retain(int[] ids) {
+        int[] kept = new int[ids.length];
+        int n = 0;
+        for (int id : ids) {
+            if (contains(id)) kept[n++] = id;
+        }
+        return n == ids.length ? ids : Arrays.copyOf(kept, n);
+    }
+
+    /**
+     * @return the ids from the highest down
+     */
+    public int[] toDescendingArray() {
+        int[] ids = new int[cardinality()];
+        int n = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof char[]) {
+                char[] low = (char[]) container;
+                for (int j = cardinalities[i] - 1; j >= 0; j--) ids[n++] = high | low[j];
+            } else {
+                long[] words = (long[]) container;
+                for (int w = BITMAP_WORDS - 1; w >= 0; w--) {
+                    for (long word = words[w]; word != 0; word &= ~(1L << 63 - Long.numberOfLeadingZeros(word)))
+                        ids[n++] = high | (w << 6) | (63 - Long.numberOfLeadingZeros(word));
+                }
+            }
+        }
+        return ids;
+    }
+
+
+    private static boolean contains(Object container, int cardinality, char low) {
+        if (container instanceof char[]) return Arrays.binarySearch((char[]) container, 0, cardinality, low) >= 0;
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static Object and(Object a, int na, Object b, int nb) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b, result = new char[Math.min(na, nb)];
+            int n = 0;
+            for (int i = 0, j = 0; i < na && j < nb; ) {
+                if (x[i] < y[j]) i++;
+                else if (x[i] > y[j]) j++;
+                else {
+                    result[n++] = x[i++];
+                    j++;
+                }
+            }
+            return n == result.length ? result : Arrays.copyOf(result, n);
+        }
+        if (b instanceof char[]) return and(b, nb, a, na);
+        if (a instanceof char[]) {
+            char[] x = (char[]) a, result = new char[na];
+            long[] words = (long[]) b;
+            int n = 0;
+            for (int i = 0; i < na; i++) {
+                if ((words[x[i] >>> 6] & (1L << x[i])) != 0) result[n++] = x[i];
+            }
+            return n == result.length ? result : Arrays.copyOf(result, n);
+        }
+
+        long[] x = (long[]) a, y = (long[]) b, words = new long[BITMAP_WORDS];
+        int cardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            words[w] = x[w] & y[w];
+            cardinality += Long.bitCount(words[w]);
+        }
+        return cardinality > ARRAY_MAX ? words : toArray(words, cardinality);
+    }
+
+    private static Object or(Object a, int na, Object b, int nb) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b, result = new char[na + nb];
+            int n = 0, i = 0, j = 0;
+            while (i < na || j < nb) {
+                if (j == nb || (i < na && x[i] < y[j])) result[n++] = x[i++];
+                else if (i == na || x[i] > y[j]) result[n++] = y[j++];
+                else {
+                    result[n++] = x[i++];
+                    j++;
+                }
+            }
+            return n > ARRAY_MAX ? toBitmap(result, n) : Arrays.copyOf(result, n);
+        }
+
+        long[] words = new long[BITMAP_WORDS];
+        for (Object container : new Object[]{a, b}) {
+            if (container instanceof char[]) {
+                char[] low = (char[]) container;
+                int n = container == a ? na : nb;
+                for (int i = 0; i < n; i++) words[low[i] >>> 6] |= 1L << low[i];
+            } else {
+                long[] other = (long[]) container;
+                for (int w = 0; w < BITMAP_WORDS; w++) words[w] |= other[w];
+            }
+        }
+        return words;
+    }
+
+    private static int andCardinality(Object a, int na, Object b, int nb) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            int n = 0;
+            for (int i = 0, j = 0; i < na && j < nb; ) {
+                if (x[i] < y[j]) i++;
+                else if (x[i] > y[j]) j++;
+                else {
+                    n++;
+                    i++;
+                    j++;
+                }
+            }
+            return n;
+        }
+        if (b instanceof char[]) return andCardinality(b, nb, a, na);
+        if (a instanceof char[]) {
+            char[] x = (char[]) a;
+            long[] words = (long[]) b;
+            int n = 0;
+            for (int i = 0; i < na; i++) {
+                if ((words[x[i] >>> 6] & (1L << x[i])) != 0) n++;
+            }
+            return n;
+        }
+
+        long[] x = (long[]) a, y = (long[]) b;
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) n += Long.bitCount(x[w] & y[w]);
+        return n;
+    }
+
+    private static int cardinality(Object container) {
+        if (container instanceof char[]) return ((char[]) container).length;
+
+        int n = 0;
+        for (long word : (long[]) container) n += Long.bitCount(word);
+        return n;
+    }
+
+    private static long[] toBitmap(char[] low, int n) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < n; i++) words[low[i] >>> 6] |= 1L << low[i];
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int cardinality) {
+        char[] low = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1)
+                low[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,154 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.ImageSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the ImageSource of a job. The result is kept per job id, so a job is classified once.
+ *
+ * Job titles are matched against the keywords of ImageSource with an Aho-Corasick automaton
+ * compiled to a DFA: one pass over the title, one table lookup per char, no lower-case copy.
+ * Adding keywords to ImageSource makes the table bigger, not the scan longer.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class ImageClassifier {
+
+    private static final int NO_RULE = Integer.MAX_VALUE;
+
+    private final ImageSource[] rules;   // keyword rules, in priority (declaration) order
+    private final int[] columns = new int[128];   // keyword char -> DFA column, 0 for any other char
+    private final int[][] next;   // state x column -> state
+    private final int[] match;    // state -> best rule ending in this state, NO_RULE if none
+
+    private final ConcurrentMap<Integer, ImageSource> imageById = new ConcurrentHashMap<>();
+
+
+    public ImageClassifier() {
+        List<ImageSource> keywordRules = new ArrayList<>();
+        for (ImageSource source : ImageSource.values()) {
+            if (source.getKeywords().length > 0) keywordRules.add(source);
+        }
+        rules = keywordRules.toArray(new ImageSource[keywordRules.size()]);
+
+        int width = 1;
+        for (ImageSource rule : rules) {
+            for (String keyword : rule.getKeywords()) {
+                for (char c : keyword.toLowerCase(Locale.ROOT).toCharArray()) {
+                    if (c >= columns.length) throw new IllegalArgumentException("Only ASCII keywords are supported: " + keyword);
+                    if (columns[c] == 0) columns[c] = width++;
+                }
+            }
+        }
+
+        // trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(new int[width]);
+        output.add(NO_RULE);
+        for (int r = 0; r < rules.length; r++) {
+            for (String keyword : rules[r].getKeywords()) {
+                int state = 0;
+                for (char c : keyword.toLowerCase(Locale.ROOT).toCharArray()) {
+                    int column = columns[c];
+                    if (trie.get(state)[column] == 0) {
+                        trie.get(state)[column] = trie.size();
+                        trie.add(new int[width]);
+                        output.add(NO_RULE);
+                    }
+                    state = trie.get(state)[column];
+                }
+                output.set(state, Math.min(output.get(state), r));
+            }
+        }
+
+        // failure links folded into the transition table (breadth first)
+        next = trie.toArray(new int[trie.size()][]);
+        match = new int[next.length];
+        for (int s = 0; s < match.length; s++) match[s] = output.get(s);
+
+        int[] fail = new int[next.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int column = 1; column < width; column++) {
+            if (next[0][column] != 0) queue.add(next[0][column]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            match[state] = Math.min(match[state], match[fail[state]]);
+            for (int column = 1; column < width; column++) {
+                int child = next[state][column];
+                if (child != 0) {
+                    fail[child] = next[fail[state]][column];
+                    queue.add(child);
+                } else {
+                    next[state][column] = next[fail[state]][column];
+                }
+            }
+        }
+    }
+
+
+    public String imageSource(int id, String website, String jobTitle) {
+        ImageSource imgSource = imageById.get(id);
+        if (imgSource == null) {
+            imgSource = classify(website, jobTitle);
+            imageById.put(id, imgSource);
+        }
+
+        return imgSource.toString();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before response caches of JobService are cleared
+    public void onDataChanged(DataChangedEvent event) {
+        imageById.clear();   // a row may be updated in place
+    }
+
+    public ImageSource classify(String website, String jobTitle) {
+        if (website == null) return ImageSource.JOBSEARCH_AZ;
+
+        switch (website) {
+            case "boss.az":
+                return ImageSource.BOSS_AZ;
+            case "jobsearch.az":
+                return ImageSource.JOBSEARCH_AZ;
+            case "rabota.az":
+                return ImageSource.RABOTA_AZ;
+            case "banco.az":
+                return ImageSource.BANCO_AZ;
+            case "careerbuilder.com": 
+            case "monster.de":
+                return getDeveloperImage(jobTitle);
+            default:
+                return ImageSource.JOBSEARCH_AZ;
+        }
+    }
+
+    ImageSource getDeveloperImage(String jobTitle) {
+        if (jobTitle == null) return ImageSource.DEVELOPER;
+
+        int state = 0, best = NO_RULE;
+        for (int i = 0, len = jobTitle.length(); i < len; i++) {
+            char c = Character.toLowerCase(jobTitle.charAt(i));
+            state = next[state][c < columns.length ? columns[c] : 0];
+            if (match[state] < best) {
+                best = match[state];
+                if (best == 0) break;   // nothing can beat the first rule
+            }
+        }
+
+        return best == NO_RULE ? ImageSource.DEVELOPER : rules[best];
+    }
+
+}
@@ -0,0 +1,225 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.IngestResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk insert of vacancies sent as NDJSON (one JobInfo per line), see POST /ingest.
+ *
+ * Lines are written in batches, one transaction per batch, through the single writer connection.
+ * link is unique in all_vacancies, so it is the duplicate key (url_suffix is not unique: the same
+ * company and title are posted again). When rows are inserted, DataVersion.changedLater() has the search
+ * index and caches refreshed within developerjobs.data-version.refresh-delay, once for all requests posted
+ * meanwhile, off the request thread; there is no need to wait for the poll or restart.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Service
+public class JobIngestService {
+
+    private final Logger logger = LoggerFactory.getLogger(JobIngestService.class);
+
+    private static final String MAX_ID = "select coalesce(max(id), 0) from all_vacancies";
+    private static final String EXISTING_LINKS = "select link from all_vacancies where link in (%s)";
+    private static final String NEW_ROWS = "select id, website, job_title from all_vacancies where id > ?";
+    private static final String INSERT = "insert or ignore into all_vacancies (link, job_title, company, salary, published, deadline, website, "
+                                       + "content, insert_date, job_type, location, country_code, url_suffix) "
+                                       + "values (?, ?, ?, ?, ?, ?, ?, ?, coalesce(?, current_timestamp), ?, ?, ?, ?)";
+    private static final int LOOKUP_BATCH = 500;   // keep "link in (...)" below SQLite variable limit
+
+    // url_suffix transliteration: russian a..ya and azerbaijani letters
+    private static final String AZERBAIJANI = "\u0259\u0131\u00f6\u00fc\u00e7\u015f\u011f";
+    private static final String[] CYRILLIC = {
+        "a", "b", "v", "g", "d", "e", "zh", "z", "i", "j", "k", "l", "m", "n", "o", "p",
+        "r", "s", "t", "u", "f", "h", "c", "ch", "sh", "sh", "", "y", "", "e", "yu", "ya"
+    };
+
+    @Autowired
+    @Qualifier("writerJdbcTemplate")
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("writerTransactionTemplate")
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @Autowired
+    private ImageClassifier imageClassifier;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${developerjobs.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${developerjobs.ingest.token:}")
+    private String token;
+
+    private final AtomicInteger classifyAfter = new AtomicInteger(Integer.MAX_VALUE);   // images of jobs after this id are computed on refresh
+
+
+    /**
+     * @return false when ingestion is disabled (no token configured) or the token doesn't match
+     */
+    public boolean accepts(String requestToken) {
+        return !token.isEmpty() && requestToken != null
+            && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public IngestResult ingest(Reader ndjson) throws IOException {
+        long start = System.currentTimeMillis();
+        ObjectReader reader = objectMapper.readerFor(JobInfo.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        IngestResult result = new IngestResult();
+        int lastId = jdbcTemplate.queryForObject(MAX_ID, Integer.class);
+        List<JobInfo> batch = new ArrayList<>(batchSize);
+        Set<String> links = new HashSet<>();   // duplicates inside the stream
+
+        BufferedReader lines = new BufferedReader(ndjson);
+        for (String line; (line = lines.readLine()) != null; ) {
+            if (line.trim().isEmpty()) continue;
+            result.setReceived(result.getReceived() + 1);
+
+            JobInfo job;
+            try {
+                job = reader.readValue(line);
+            } catch (JsonProcessingException ex) {
+                result.setInvalid(result.getInvalid() + 1);
+                continue;
+            }
+            if (!prepare(job)) {
+                result.setInvalid(result.getInvalid() + 1);
+            } else if (!links.add(job.getLink())) {
+                result.setDuplicates(result.getDuplicates() + 1);
+            } else {
+                batch.add(job);
+                if (batch.size() == batchSize) {
+                    write(batch, result);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) write(batch, result);
+
+        if (result.getInserted() > 0) {
+            classifyAfter.accumulateAndGet(lastId, Math::min);
+            dataVersion.changedLater();
+        }
+        logger.info("Ingestion finished in {} ms: {}", System.currentTimeMillis() - start, result);
+
+        return result;
+    }
+
+    /**
+     * Validates the job and fills what the scraper would compute
+     */
+    private static boolean prepare(JobInfo job) {
+        if (isBlank(job.getLink()) || isBlank(job.getJobTitle()) || isBlank(job.getCountryCode())) return false;
+        if (isBlank(job.getUrlSuffix())) job.setUrlSuffix(urlSuffix(job.getCompany(), job.getJobTitle()));
+        return true;
+    }
+
+    private void write(List<JobInfo> batch, IngestResult result) {
+        transactionTemplate.execute(status -> {
+            Set<String> existing = existingLinks(batch);
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (JobInfo j : batch) {
+                if (existing.contains(j.getLink())) continue;
+                rows.add(new Object[]{j.getLink(), j.getJobTitle(), j.getCompany(), j.getSalary(), j.getPublished(), j.getDeadline(),
+                                      j.getWebsite(), j.getContent(), j.getInsertDate(), j.getJobType(), j.getLocation(),
+                                      j.getCountryCode(), j.getUrlSuffix()});
+            }
+
+            int count = 0;
+            for (int n : jdbcTemplate.batchUpdate(INSERT, rows))
+                if (n > 0) count++;
+
+            result.setDuplicates(result.getDuplicates() + batch.size() - count);
+            result.setInserted(result.getInserted() + count);
+            return null;
+        });
+    }
+
+    private Set<String> existingLinks(List<JobInfo> batch) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < batch.size(); from += LOOKUP_BATCH) {
+            List<Object> args = new ArrayList<>(LOOKUP_BATCH);
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = from, to = Math.min(from + LOOKUP_BATCH, batch.size()); i < to; i++) {
+                args.add(batch.get(i).getLink());
+                placeholders.append(i == from ? "?" : ",?");
+            }
+            existing.addAll(jdbcTemplate.queryForList(String.format(EXISTING_LINKS, placeholders), String.class, args.toArray()));
+        }
+        return existing;
+    }
+
+    /**
+     * Image classes of ingested jobs are computed here, after the caches were cleared, so listing pages don't pay for it.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onDataChanged(DataChangedEvent event) {
+        int lastId = classifyAfter.getAndSet(Integer.MAX_VALUE);
+        if (lastId == Integer.MAX_VALUE) return;
+
+        jdbcTemplate.query(NEW_ROWS, new Object[]{lastId}, (RowCallbackHandler) rs ->
+            imageClassifier.imageSource(rs.getInt(1), rs.getString(2), rs.getString(3)));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+
+    /**
+     * url_suffix the way the scraper builds it: "company title" lower case, Azerbaijani and Russian
+     * letters transliterated, spaces and '/' become '-', digits and other symbols are dropped.
+     */
+    static String urlSuffix(String company, String jobTitle) {
+        String text = (company == null ? "" : company + " ") + jobTitle;
+        StringBuilder suffix = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isWhitespace(c) || c == '/' || c == '-') {
+                suffix.append('-');
+            } else if (c >= '\u0430' && c <= '\u044f') {   // russian a..ya
+                suffix.append(CYRILLIC[c - '\u0430']);
+            } else if (c == '\u0451') {   // yo
+                suffix.append('e');
+            } else if (Character.isLetter(c)) {
+                int azerbaijani = AZERBAIJANI.indexOf(c);
+                suffix.append(azerbaijani >= 0 ? "eioucsg".charAt(azerbaijani) : c);
+            }
+        }
+        return suffix.toString();
+    }
+
+}
@@ -0,0 +1,34 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads of the pages and jobs, from SQLite (DatabaseJobReader) or from the memory-mapped copy (SnapshotStore).
+ * JobService picks one at startup by developerjobs.storage; images are set by JobService.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public interface JobReader {
+
+    /**
+     * @param pageIndex zero based, a negative index is the first page
+     * @return list views of one page (PageBoundaryCache.PAGE_SIZE jobs) of the country, ordered by id desc
+     */
+    List<JobSummary> findSummaries(String countryCode, int pageIndex);
+
+    /**
+     * @return list views in the order of ids, unknown ids are skipped
+     */
+    List<JobSummary> findSummaries(int[] ids);
+
+    JobInfo findByIdAndUrlSuffix(int id, String urlSuffix);
+
+    /**
+     * @return country code -> count of its jobs
+     */
+    Map<String, Integer> countGroupByCountryCode();
+
+}
@@ -1,20 +1,30 @@
 
 package az.mm.developerjobs.service;
 
-import az.mm.developerjobs.constant.ImageSource;
+import az.mm.developerjobs.config.SchemaInitializer;
+import az.mm.developerjobs.constant.JobFacet;
+import az.mm.developerjobs.constant.SearchBackend;
 import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.Facet;
+import az.mm.developerjobs.model.FacetFilter;
+import az.mm.developerjobs.model.JobPage;
+import az.mm.developerjobs.model.JobSummary;
 import az.mm.developerjobs.model.Pagination;
 import az.mm.developerjobs.repository.JobRepository;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import javax.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 /**
@@ -26,129 +36,272 @@ public class JobService {
     
     private final Logger logger = LoggerFactory.getLogger(JobService.class);
     
+    private static final EnumSet<JobFacet> SEARCH_FACETS = EnumSet.allOf(JobFacet.class);
+    private static final EnumSet<JobFacet> LISTING_FACETS = EnumSet.complementOf(EnumSet.of(JobFacet.COUNTRY));   // country is the listing itself
+    
     @Autowired
     private JobRepository jobRepository;
     
     @Autowired
-    private JavaMailSender javaMailSender;
+    private SearchIndex searchIndex;
+    
+    @Autowired
+    private FacetIndex facetIndex;
+    
+    @Autowired
+    private SchemaInitializer schemaInitializer;
+    
+    @Autowired
+    private ImageClassifier imageClassifier;
+    
+    @Autowired
+    private Highlighter highlighter;
+    
+    @Autowired
+    private SnapshotStore snapshotStore;
+    
+    @Autowired
+    private DatabaseJobReader databaseJobReader;
+    
+    private JobReader jobReader;   // chosen by developerjobs.storage
+    
+    @Value("${developerjobs.search.backend:INDEX}")
+    private SearchBackend searchBackend;
+    
+    @Value("${developerjobs.search.case-sensitive:true}")
+    private boolean caseSensitiveSearch;
+    
+    @Autowired
+    private MailOutbox mailOutbox;
+    
+    @Value("${developerjobs.cache.pages.max-jobs:20000}")
+    private long pageCacheMaxJobs;
+    
+    @Value("${developerjobs.cache.jobs.max-chars:20000000}")
+    private long jobCacheMaxChars;
+    
+    private volatile Map<String, Integer> vacancyCounts;   // country code -> count, reloaded when data changes
+    
+    /* Response caches, cleared when DataVersion reports a change */
+    private LruCache<String, List<JobSummary>> pageCache;   // "countryCode/pageIndex" -> jobs of the page
+    private LruCache<String, JobInfo> jobCache;             // "id/urlSuffix" -> job with content
+    
+    
+    @PostConstruct
+    public void init() {
+        jobReader = snapshotStore.isEnabled() ? snapshotStore : databaseJobReader;
+        createCaches();
+    }
+    
+    private void createCaches() {
+        pageCache = new LruCache<>("pages", pageCacheMaxJobs, jobs -> jobs.size() + 1);
+        jobCache = new LruCache<>("jobs", jobCacheMaxChars, job -> job.getContent() == null ? 1 : job.getContent().length() + 1);
+    }
+    
+    public List<LruCache<?, ?>> getCaches() {
+        return Arrays.asList(pageCache, jobCache);
+    }
 
 
-    public List<JobInfo> getJobsWithLimit(String countryCode, int start) {
-        List<JobInfo> jobs = new ArrayList<>();
-        jobRepository.getJobsWithLimit(countryCode, start, 10).forEach((j) -> {
-            j.setImageSrc(createImageSource(j.getWebsite(), j.getJobTitle()));
+    public List<JobSummary> getJobsWithLimit(String countryCode, int start) {
+        return findSummaries(jobRepository.getJobIdsWithLimit(countryCode, start, 10));
+    }
+    
+    public List<JobSummary> getJobsWithPageRequest(String countryCode, int pageIndex) {
+        PageRequest pageRequest = new PageRequest(pageIndex, 10);   // order by id desc is in the query
+        List<JobSummary> jobs = new ArrayList<>();
+        jobRepository.findSummariesByCountryCode(countryCode, pageRequest).forEach((j) -> {
+            j.setImageSrc(imageClassifier.imageSource(j.getId(), j.getWebsite(), j.getJobTitle()));
             jobs.add(j);
         });
         
         return jobs;
     }
     
-    public List<JobInfo> getJobsWithPageRequest(String countryCode, int pageIndex) {
-        PageRequest pageRequest = new PageRequest(pageIndex, 10, Sort.Direction.DESC, "id");
-        List<JobInfo> jobs = new ArrayList<>();
-        jobRepository.findAllByCountryCode(countryCode, pageRequest).forEach((j) -> {
-            j.setImageSrc(createImageSource(j.getWebsite(), j.getJobTitle()));
-            jobs.add(j);
-        });
+    /**
+     * Cached, the returned list is shared and must not be modified
+     */
+    public List<JobSummary> getJobsWithKeyset(String countryCode, int pageIndex) {
+        if (countOfVacancy(countryCode) == 0) return new ArrayList<>();   // id comes from the url, nothing is loaded or cached for unknown ones
         
-        return jobs;
+        return pageCache.get(countryCode + '/' + pageIndex, key -> loadJobsWithKeyset(countryCode, pageIndex));
+    }
+    
+    /**
+     * The seek query behind getJobsWithKeyset, uncached
+     */
+    public List<JobSummary> loadJobsWithKeyset(String countryCode, int pageIndex) {
+        return withImages(jobReader.findSummaries(countryCode, pageIndex));
+    }
+    
+    /**
+     * One page of the country listing filtered by website, location and job type, with their counts.
+     * Without a filter the page comes from getJobsWithKeyset.
+     */
+    public JobPage getJobs(String countryCode, FacetFilter filter, int pageIndex) {
+        IdBitmap country = facetIndex.get(JobFacet.COUNTRY, countryCode);
+        List<Facet> facets = facetIndex.count(country, filter, LISTING_FACETS);
+        IdBitmap selected = facetIndex.filter(filter, LISTING_FACETS);
+        if (selected == null) 
+            return new JobPage(getJobsWithKeyset(countryCode, pageIndex), countOfVacancy(countryCode), facets);
+        
+        int[] ids = country.and(selected).toDescendingArray();
+        return new JobPage(page(ids, pageIndex * PageBoundaryCache.PAGE_SIZE, PageBoundaryCache.PAGE_SIZE), ids.length, facets);
     }
     
+    /**
+     * Cached, the returned job is shared and must not be modified
+     */
     public JobInfo getJob(int id, String title) {
-        JobInfo job = jobRepository.findByIdAndUrlSuffix(id, title);
+        return jobCache.get(id + "/" + title, key -> loadJob(id, title));
+    }
+    
+    private JobInfo loadJob(int id, String title) {
+        JobInfo job = jobReader.findByIdAndUrlSuffix(id, title);
         if(job != null)
-            job.setImageSrc(createImageSource(job.getWebsite(), job.getJobTitle()));
+            job.setImageSrc(imageClassifier.imageSource(job.getId(), job.getWebsite(), job.getJobTitle()));
         return job;
     }
     
-    public int countOfVacancy(String countryCode){
-        int count = jobRepository.countByCountryCode(countryCode);
-        return count;
+    /**
+     * @return content of the job with searchText highlighted, in the same case mode as search
+     */
+    public String highlightContent(JobInfo job, String searchText) {
+        return highlighter.highlight(job.getContent(), searchText, caseSensitiveSearch);
     }
     
-    public List<JobInfo> caseInsensitiveSearchResult(String searchText) {
-        List<JobInfo> jobs = new ArrayList<>();
-        jobRepository.searchResult(searchText).forEach((j) -> {
-            j.setImageSrc(createImageSource(j.getWebsite(), j.getJobTitle()));
-            jobs.add(j);
-        });
+    public int countOfVacancy(String countryCode){
+        Map<String, Integer> counts = vacancyCounts;
+        if (counts == null) 
+            vacancyCounts = counts = loadVacancyCounts();
         
-        return jobs;
+        return counts.getOrDefault(countryCode, 0);
     }
     
-    public List<JobInfo> caseSensitiveSearchResult(String searchText) {
-        List<JobInfo> jobs = new ArrayList<>();
-        logger.info("Starting search... [{}]", searchText);
-        jobRepository.findAll()
-                .parallelStream()
-                .filter(job -> job.getJobTitle().contains(searchText) 
-                                || job.getCompany().contains(searchText) 
-                                || job.getContent().contains(searchText))
-                .collect(Collectors.toList())
-                .forEach((j) -> {
-                    j.setImageSrc(createImageSource(j.getWebsite(), j.getJobTitle()));
-                    jobs.add(j);
-                });
-        logger.info("Ending search..., result: {}", jobs.size());
+    private Map<String, Integer> loadVacancyCounts() {
+        return jobReader.countGroupByCountryCode();
+    }
+    
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)   // after the index, page boundaries and images are refreshed
+    public void onDataChanged(DataChangedEvent event) {
+        vacancyCounts = loadVacancyCounts();
+        for (LruCache<?, ?> cache : getCaches()) {
+            logger.info("Clearing cache {}", cache);
+            cache.clear();
+        }
+    }
+    
+    /**
+     * One page of search result filtered by facets, with counts of the facet values among all jobs found.
+     * The whole result is needed for the counts, so FTS and LIKE read all matching ids (not rows).
+     */
+    public JobPage search(String searchText, FacetFilter filter, int pageIndex, int size) {
+        int start = pageIndex * size;
+        if (usesSearchIndex()) {   // one search for count, facets and page; ranked, only the jobs up to the page are ordered
+            SearchIndex.Hits hits = searchIndex.find(searchText, caseSensitiveSearch);
+            IdBitmap found = IdBitmap.of(hits.ids);
+            List<Facet> facets = facetIndex.count(found, filter, SEARCH_FACETS);
+            IdBitmap selected = facetIndex.filter(filter, SEARCH_FACETS);
+            int count = selected == null ? hits.size() : found.andCardinality(selected);
+            return new JobPage(page(searchIndex.rank(hits, selected, start + size), start, size), count, facets, hits.isCut());
+        }
         
-        jobs.sort((j1, j2) -> j2.getId() - j1.getId());
+        int[] ids = searchIds(searchText);
+        List<Facet> facets = facetIndex.count(IdBitmap.of(ids), filter, SEARCH_FACETS);
+        IdBitmap selected = facetIndex.filter(filter, SEARCH_FACETS);
         
-        return jobs;
+        if (selected != null) 
+            ids = selected.retain(ids);   // keeps the order of the backend
+        return new JobPage(page(ids, start, size), ids.length, facets);
     }
     
-    private String createImageSource(String website, String jobTitle) {
-        ImageSource imgSource;
-        switch (website) {
-            case "boss.az":
-                imgSource = ImageSource.BOSS_AZ;
-                break;
-            case "jobsearch.az":
-                imgSource = ImageSource.JOBSEARCH_AZ;
-                break;
-            case "rabota.az":
-                imgSource = ImageSource.RABOTA_AZ;
-                break;
-            case "banco.az":
-                imgSource = ImageSource.BANCO_AZ;
-                break;
-            case "careerbuilder.com": 
-            case "monster.de":
-                imgSource = getDeveloperImageUrl(jobTitle);
+    private boolean usesSearchIndex() {
+        return searchBackend == SearchBackend.INDEX || (searchBackend == SearchBackend.FTS && !schemaInitializer.isFullTextSearchAvailable());
+    }
+    
+    /**
+     * All ids of search result, in the order of the backend (id desc for INDEX)
+     */
+    private int[] searchIds(String searchText) {
+        switch (searchBackend) {
+            case FTS:
+                if (schemaInitializer.isFullTextSearchAvailable()) {
+                    String matchQuery = toMatchQuery(searchText);
+                    return matchQuery.isEmpty() ? new int[0] : toArray(jobRepository.fullTextSearchIds(matchQuery, 0, Integer.MAX_VALUE));
+                }
                 break;
-            default:
-                imgSource = ImageSource.JOBSEARCH_AZ;
+            case LIKE:
+                return toArray(jobRepository.searchResultIds(searchText, 0, Integer.MAX_VALUE));
         }
-
-        return imgSource.toString();
+        
+        return searchIndex.search(searchText, caseSensitiveSearch);
     }
-
-    private ImageSource getDeveloperImageUrl(String jobTitle) {
-        ImageSource imgSource = ImageSource.DEVELOPER;
-        if (jobTitle != null) {
-            jobTitle = jobTitle.toLowerCase();
-
-            if (jobTitle.contains("java")) {
-                imgSource = ImageSource.JAVA;
-            } else if (jobTitle.contains("net")) {
-                imgSource = ImageSource.NET;
-            } else if (jobTitle.contains("android")) {
-                imgSource = ImageSource.ANDROID;
-            } else if (jobTitle.contains("sql")) {
-                imgSource = ImageSource.SQL;
-            } else if (jobTitle.contains("python")) {
-                imgSource = ImageSource.PYTHON;
-            } else if (jobTitle.contains("php")) {
-                imgSource = ImageSource.PHP;
-            }
+    
+    private List<JobSummary> page(int[] ids, int start, int size) {
+        if (start >= ids.length) return new ArrayList<>();
+        
+        return findSummaries(Arrays.copyOfRange(ids, start, Math.min(start + size, ids.length)));
+    }
+    
+    public List<JobSummary> fullTextSearchResult(String searchText, int start, int limit) {
+        String matchQuery = toMatchQuery(searchText);
+        if (matchQuery.isEmpty()) return new ArrayList<>();
+        
+        logger.info("Starting full text search... [{}]", matchQuery);
+        List<JobSummary> jobs = findSummaries(jobRepository.fullTextSearchIds(matchQuery, start, limit));
+        logger.info("Ending full text search..., result: {}", jobs.size());
+        
+        return jobs;
+    }
+    
+    public List<JobSummary> likeSearchResult(String searchText, int start, int limit) {
+        return findSummaries(jobRepository.searchResultIds(searchText, start, limit));
+    }
+    
+    /**
+     * User text to FTS5 query: every word becomes a quoted prefix term ("java" "dev"*),
+     * so operators and quotes typed by the user are never interpreted.
+     */
+    static String toMatchQuery(String searchText) {
+        StringBuilder matchQuery = new StringBuilder();
+        for (String token : SearchIndex.tokenize(searchText)) {
+            if (matchQuery.length() > 0) matchQuery.append(' ');
+            matchQuery.append('"').append(token).append("\"*");
         }
-
-        return imgSource;
+        
+        return matchQuery.toString();
     }
     
+    private List<JobSummary> findSummaries(List<Number> ids) {
+        return findSummaries(toArray(ids));
+    }
+    
+    private static int[] toArray(List<Number> ids) {
+        int[] values = new int[ids.size()];
+        for (int i = 0; i < values.length; i++) 
+            values[i] = ids.get(i).intValue();
+        return values;
+    }
+    
+    /**
+     * Loads list views of jobs by id, keeping the order of the given ids.
+     */
+    private List<JobSummary> findSummaries(int[] ids) {
+        return withImages(jobReader.findSummaries(ids));
+    }
+    
+    private List<JobSummary> withImages(List<JobSummary> jobs) {
+        jobs.forEach(j -> j.setImageSrc(imageClassifier.imageSource(j.getId(), j.getWebsite(), j.getJobTitle())));
+        return jobs;
+    }
     
     public Pagination createPagination(String countryCode, int page){
-        int vacancyCount = countOfVacancy(countryCode);
-        int count = (int) Math.ceil(vacancyCount / 10.0);
+        return createPagination(countOfVacancy(countryCode), page, 10);
+    }
+    
+    public Pagination createPagination(int itemCount, int page, int size){
+        int count = (int) Math.ceil(itemCount / (double) size);
         int prev = (page != 1) ? (page - 1) : 1;
         int next = (page != count) ? (page + 1) : count;
 
@@ -169,14 +322,12 @@ public class JobService {
     }
     
     
+    /**
+     * Queues the mail to contact address (developerjobs.mail.to), it is delivered in background
+     */
     public void sendMail(String from, String subject, String message) {
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setTo("contact@developerjobs.info"); //which email you want to send
-        mailMessage.setFrom(from);
-        mailMessage.setSubject(subject);
-        mailMessage.setText(message);
-        javaMailSender.send(mailMessage);
-        logger.info("Mail sent");
+        mailOutbox.enqueue(from, subject, message);
+        logger.info("Mail queued");
     }
     
 }
@@ -0,0 +1,130 @@
+package az.mm.developerjobs.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Small weight-bounded LRU cache with hit/miss/eviction counters.
+ *
+ * Values are loaded outside of the lock, so two threads may load the same key at once;
+ * a value loaded before clear() is dropped instead of being put back into the cache.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class LruCache<K, V> {
+
+    private final String name;
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(64, 0.75f, true);   // access order
+    private long weight;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    public LruCache(String name, long maxWeight, ToIntFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @return cached value or the value of loader (null values are not cached)
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value;
+        long loadedIn;
+        synchronized (this) {
+            value = map.get(key);
+            loadedIn = generation;
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        value = loader.apply(key);
+        if (value != null) put(key, value, loadedIn);
+
+        return value;
+    }
+
+    /**
+     * @return cached value or null, without loading
+     */
+    public V getIfPresent(K key) {
+        V value;
+        synchronized (this) {
+            value = map.get(key);
+        }
+        if (value != null) hits.increment();
+        else misses.increment();
+
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        put(key, value, generation);
+    }
+
+    private synchronized void put(K key, V value, long loadedIn) {
+        int valueWeight = weigher.applyAsInt(value);
+        if (loadedIn != generation || valueWeight > maxWeight) return;
+
+        V old = map.put(key, value);
+        if (old != null) weight -= weigher.applyAsInt(old);
+        weight += valueWeight;
+
+        Iterator<V> eldest = map.values().iterator();
+        while (weight > maxWeight) {
+            weight -= weigher.applyAsInt(eldest.next());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+        generation++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[size=%d, weight=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                name, size(), weight(), maxWeight, hitCount(), missCount(), evictionCount());
+    }
+
+}
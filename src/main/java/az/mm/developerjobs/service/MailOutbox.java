@@ -0,0 +1,205 @@
+package az.mm.developerjobs.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Contact messages are stored in mail_outbox and sent by a background worker, so /sendMail
+ * doesn't wait for SMTP.
+ *
+ * Due messages are sent in batches, one SMTP connection per batch. A failed message is retried with
+ * exponential backoff until max-attempts, then it stays in the table (with last_error) for inspection.
+ * Delivered messages are deleted.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class MailOutbox {
+
+    private final Logger logger = LoggerFactory.getLogger(MailOutbox.class);
+
+    private static final String INSERT = "insert into mail_outbox (mail_from, subject, body, next_attempt_at) values (?, ?, ?, ?)";
+    private static final String COUNT_PENDING = "select count(*) from mail_outbox where attempts < ?";
+    private static final String DUE = "select id, mail_from, subject, body, attempts from mail_outbox "
+                                    + "where attempts < ? and next_attempt_at <= ? order by id limit ?";
+    private static final String DELETE = "delete from mail_outbox where id = ?";
+    private static final String RETRY = "update mail_outbox set attempts = attempts + 1, next_attempt_at = ?, last_error = ? where id = ?";
+
+    private static final RowMapper<Mail> MAIL_MAPPER = (rs, i) ->
+        new Mail(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5));
+
+    @Autowired
+    @Qualifier("writerJdbcTemplate")   // the worker must see its own writes
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JavaMailSender javaMailSender;
+
+    @Value("${developerjobs.mail.to:contact@developerjobs.info}")
+    private String to;
+
+    @Value("${developerjobs.mail.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${developerjobs.mail.batch-size:20}")
+    private int batchSize;
+
+    @Value("${developerjobs.mail.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${developerjobs.mail.backoff:30000}")
+    private long backoff;
+
+    @Value("${developerjobs.mail.max-backoff:3600000}")
+    private long maxBackoff;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mail-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+
+    /**
+     * Stores the message and wakes the worker up, doesn't wait for delivery.
+     *
+     * @throws IllegalStateException when too many messages are waiting already
+     */
+    public void enqueue(String from, String subject, String body) {
+        int pending = jdbcTemplate.queryForObject(COUNT_PENDING, Integer.class, maxAttempts);
+        if (pending >= maxPending)
+            throw new IllegalStateException("Mail outbox is full, " + pending + " messages are waiting");
+
+        jdbcTemplate.update(INSERT, from, subject, body, System.currentTimeMillis());
+        wakeUp();
+    }
+
+    /**
+     * Also scheduled, to pick up messages whose retry time has come.
+     */
+    @Scheduled(fixedDelayString = "${developerjobs.mail.retry-interval:30000}")
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                wakeUpPending.set(false);   // messages enqueued from now on need one more run
+                try {
+                    deliver();
+                } catch (RuntimeException ex) {
+                    logger.error("Mail outbox delivery failed", ex);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    /**
+     * Sends every due message, batch by batch. Called on the worker thread only.
+     */
+    void deliver() {
+        List<Mail> due;
+        do {
+            due = jdbcTemplate.query(DUE, MAIL_MAPPER, maxAttempts, System.currentTimeMillis(), batchSize);
+            if (!due.isEmpty()) send(due);
+        } while (due.size() == batchSize);
+    }
+
+    public int countPending() {
+        return jdbcTemplate.queryForObject(COUNT_PENDING, Integer.class, maxAttempts);
+    }
+
+
+    private void send(List<Mail> batch) {
+        Map<MimeMessage, Mail> messages = new LinkedHashMap<>();
+        for (Mail mail : batch) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (MessagingException ex) {
+                retry(mail, ex);
+            }
+        }
+        if (messages.isEmpty()) return;
+
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[messages.size()]));   // one connection for the batch
+        } catch (MailSendException ex) {
+            failed.putAll(ex.getFailedMessages());
+            if (failed.isEmpty()) messages.keySet().forEach(m -> failed.put(m, ex));
+        } catch (MailException ex) {
+            messages.keySet().forEach(m -> failed.put(m, ex));
+        }
+
+        List<Object[]> sent = new ArrayList<>();
+        messages.forEach((message, mail) -> {
+            Exception error = failed.get(message);
+            if (error == null) sent.add(new Object[]{mail.id});
+            else retry(mail, error);
+        });
+        if (!sent.isEmpty()) jdbcTemplate.batchUpdate(DELETE, sent);
+
+        logger.info("Mail outbox: {} sent, {} failed", sent.size(), batch.size() - sent.size());
+    }
+
+    private MimeMessage toMimeMessage(Mail mail) throws MessagingException {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setTo(to);
+        helper.setFrom(mail.from);
+        helper.setSubject(mail.subject);
+        helper.setText(mail.body);
+        return message;
+    }
+
+    private void retry(Mail mail, Exception error) {
+        int attempts = mail.attempts + 1;
+        long delay = Math.min(maxBackoff, backoff << Math.min(attempts - 1, 20));
+        jdbcTemplate.update(RETRY, System.currentTimeMillis() + delay, String.valueOf(error), mail.id);
+
+        if (attempts >= maxAttempts) logger.error("Mail {} is given up after {} attempts", mail.id, attempts, error);
+        else logger.warn("Mail {} failed (attempt {}), next attempt in {} ms: {}", mail.id, attempts, delay, error.toString());
+    }
+
+
+    private static final class Mail {
+        final long id;
+        final String from;
+        final String subject;
+        final String body;
+        final int attempts;
+
+        Mail(long id, String from, String subject, String body, int attempts) {
+            this.id = id;
+            this.from = from;
+            this.subject = subject;
+            this.body = body;
+            this.attempts = attempts;
+        }
+    }
+
+}
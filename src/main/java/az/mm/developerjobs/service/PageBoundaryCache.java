@@ -0,0 +1,90 @@
+package az.mm.developerjobs.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Page number -> id boundary of the /country listing, so keyset (seek) pagination
+ * can be used while urls keep page numbers.
+ *
+ * Boundaries of a country are computed once from the (country_code, id) index, which
+ * reads ids only, and are kept until the data is changed.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class PageBoundaryCache {
+
+    private final Logger logger = LoggerFactory.getLogger(PageBoundaryCache.class);
+
+    public static final int PAGE_SIZE = 10;
+    public static final int FIRST_PAGE = Integer.MAX_VALUE;   // every id is below it
+    public static final int NO_PAGE = -1;
+
+    private static final String IDS_QUERY = "select id from all_vacancies where country_code = ? order by id desc";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentMap<String, int[]> boundaries = new ConcurrentHashMap<>();
+
+
+    /**
+     * Boundaries are kept for every country asked, so countryCode must be one having jobs
+     * (JobService checks countOfVacancy), not any value of the url.
+     *
+     * @return id of the last job on the page before pageIndex (jobs of pageIndex have smaller ids),
+     *         FIRST_PAGE for the first page, NO_PAGE when pageIndex is after the last page
+     */
+    public int lastSeenId(String countryCode, int pageIndex) {
+        if (pageIndex <= 0) return FIRST_PAGE;
+
+        int[] pageEnds = boundaries.computeIfAbsent(countryCode, this::loadBoundaries);
+        return pageIndex - 1 < pageEnds.length ? pageEnds[pageIndex - 1] : NO_PAGE;
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before response caches of JobService are cleared
+    public void onDataChanged(DataChangedEvent event) {
+        boundaries.clear();
+    }
+
+    private int[] loadBoundaries(String countryCode) {
+        PageEndCollector collector = new PageEndCollector();
+        jdbcTemplate.query(IDS_QUERY, new Object[]{countryCode}, collector);
+        if (collector.rows % PAGE_SIZE == 0 && collector.size > 0) collector.size--;   // the last job ends the last page, no page follows it
+
+        logger.info("{} page boundaries of country {} loaded", collector.size, countryCode);
+        return Arrays.copyOf(collector.pageEnds, collector.size);
+    }
+
+
+    /**
+     * Keeps every PAGE_SIZE-th id of the id desc scan.
+     */
+    private static final class PageEndCollector implements RowCallbackHandler {
+        private int[] pageEnds = new int[16];
+        private int size;
+        private int rows;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (++rows % PAGE_SIZE != 0) return;
+            if (size == pageEnds.length) pageEnds = Arrays.copyOf(pageEnds, size << 1);
+            pageEnds[size++] = rs.getInt(1);
+        }
+    }
+
+}
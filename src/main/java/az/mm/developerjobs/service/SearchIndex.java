@@ -0,0 +1,753 @@
+package az.mm.developerjobs.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over job_title, company and content of all_vacancies.
+ *
+ * Terms are maximal runs of letters/digits, every term points to an ascending int[] of job ids and a
+ * parallel char[] of its weighted frequency in the job (title 10, company 5, content 1 per occurrence,
+ * as the bm25 weights of the FTS backend). Two dictionaries are kept (original case and lower case),
+ * so both search modes are answered from memory. Results keep the old semantics of String.contains.
+ *
+ * Every job found gets a score: 1 + ln(1 + weighted frequency) summed over the words of the search,
+ * times a recency boost from published (or insert_date) relative to the newest job, 2 for the newest
+ * and 1.5 for a job RECENCY_DAYS older. Scores are accumulated in primitive arrays per segment, rank()
+ * takes the top N of them with a bounded min-heap, so nothing is allocated per candidate.
+ *
+ * A search runs on its own ForkJoinPool (developerjobs.search.parallelism): the dictionary is scanned
+ * in chunks, then the jobs are split into id-ordered segments which are matched, scored (and verified)
+ * in parallel. Every search stops at developerjobs.search.time-budget, its result is then marked cut.
+ *
+ * Complete results are cached as id and score arrays by search text (lower case unless case sensitive)
+ * and case mode, up to developerjobs.cache.search.max-bytes, until the index is rebuilt. Concurrent
+ * searches of the same text wait for the one already running instead of scanning again.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class SearchIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final String INDEX_QUERY = "select id, job_title, company, content, published, insert_date from all_vacancies";
+    private static final String VERIFY_QUERY = "select id, job_title, company, content from all_vacancies where id in (%s)";
+    private static final int VERIFY_BATCH = 500;   // keep below SQLITE_MAX_VARIABLE_NUMBER (999)
+    private static final int[] NO_IDS = new int[0];
+    private static final int[] FIELD_WEIGHTS = {10, 5, 1};   // job_title, company, content
+    private static final double RECENCY_DAYS = 30;            // a job this much older than the newest gets half of its boost
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final int TERM_CHUNK = 16384;      // dictionary terms scanned by one task
+    private static final int SEGMENT_DOCS = 16384;    // jobs in one segment
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ForkJoinPool pool;
+    private final long timeBudget;   // nanos
+    private final int segmentDocs;
+
+    private volatile Snapshot snapshot;
+
+    private final LruCache<String, Hits> results;   // "S:text" / "I:lower text" -> all jobs found, of the current snapshot
+    private final ConcurrentHashMap<String, CompletableFuture<Hits>> running = new ConcurrentHashMap<>();
+
+
+    @Autowired
+    public SearchIndex(@Value("${developerjobs.search.parallelism:0}") int parallelism,
+                       @Value("${developerjobs.search.time-budget:2000}") long timeBudgetMillis,
+                       @Value("${developerjobs.cache.search.max-bytes:16777216}") long cacheMaxBytes) {
+        this(parallelism, timeBudgetMillis, SEGMENT_DOCS, cacheMaxBytes);
+    }
+
+    SearchIndex(int parallelism, long timeBudgetMillis, int segmentDocs, long cacheMaxBytes) {
+        if (parallelism <= 0) parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);   // leave reader connections to page views
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("search-segment-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.timeBudget = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.segmentDocs = segmentDocs;
+        this.snapshot = new Builder().build(segmentDocs);
+        this.results = new LruCache<>("searches", cacheMaxBytes, hits -> 32 + 8 * hits.ids.length);
+    }
+
+    public LruCache<String, Hits> getCache() {
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @PostConstruct
+    public void build() {
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder();
+        jdbcTemplate.query(INDEX_QUERY, (RowCallbackHandler) rs -> builder.add(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6)));
+        load(builder);
+        logger.info("Search index built: {} jobs, {} terms in {} ms", snapshot.docCount, snapshot.terms.length, System.currentTimeMillis() - start);
+    }
+
+    void load(Builder builder) {
+        Snapshot built = builder.build(segmentDocs);
+        synchronized (results) {   // no result of the old snapshot is put after this
+            snapshot = built;
+            results.clear();
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before response caches of JobService are cleared
+    public void onDataChanged(DataChangedEvent event) {
+        build();
+    }
+
+    /**
+     * Cached, the returned array is shared and must not be modified
+     *
+     * @return ids of jobs whose title, company or content contains searchText, ordered by id desc
+     */
+    public int[] search(String searchText, boolean caseSensitive) {
+        return find(searchText, caseSensitive).ids;
+    }
+
+    /**
+     * Cached unless cut, the returned arrays are shared and must not be modified
+     *
+     * @return jobs whose title, company or content contains searchText, ids desc with their scores
+     */
+    public Hits find(String searchText, boolean caseSensitive) {
+        return hits(searchText, caseSensitive);
+    }
+
+    /**
+     * @param filter only these jobs are ranked, null - all jobs found
+     * @return ids of the limit best scored jobs of search(searchText, caseSensitive), best first
+     *         (the newer job of equal scores)
+     */
+    public int[] rank(String searchText, boolean caseSensitive, IdBitmap filter, int limit) {
+        return rank(hits(searchText, caseSensitive), filter, limit);
+    }
+
+    /**
+     * rank() of a result already found, so that its count and page come from the same search
+     */
+    public int[] rank(Hits hits, IdBitmap filter, int limit) {
+        if (limit <= 0) return NO_IDS;   // e.g. an overflowed page end
+
+        TopK top = new TopK(Math.min(limit, hits.ids.length));
+        for (int i = 0; i < hits.ids.length; i++) {
+            if (filter == null || filter.contains(hits.ids[i])) top.offer(hits.ids[i], hits.scores[i]);
+        }
+        return top.toArray();
+    }
+
+    private Hits hits(String searchText, boolean caseSensitive) {
+        String key = key(searchText, caseSensitive);
+        Hits hits = results.getIfPresent(key);
+        if (hits != null) return hits;
+
+        CompletableFuture<Hits> search = new CompletableFuture<>();
+        CompletableFuture<Hits> other = running.putIfAbsent(key, search);
+        if (other != null) return join(other);
+
+        try {
+            Query q = new Query(snapshot, searchText, caseSensitive, System.nanoTime() + timeBudget);
+            hits = scan(q);
+            synchronized (results) {
+                if (!q.cut && q.snapshot == snapshot) results.put(key, hits);   // a cut result is shared with the waiting searches only
+            }
+            search.complete(hits);
+            return hits;
+        } catch (RuntimeException | Error ex) {
+            search.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            running.remove(key, search);
+        }
+    }
+
+    private static String key(String searchText, boolean caseSensitive) {
+        return caseSensitive ? "S:" + searchText : "I:" + lower(searchText);
+    }
+
+    private static Hits join(CompletableFuture<Hits> search) {
+        try {
+            return search.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw ex;
+        }
+    }
+
+    private Hits scan(Query q) {
+        try {
+            List<String> runs = tokenize(q.text);
+            int[][] terms = new int[runs.size()][];
+            for (int r = 0; r < terms.length; r++) {
+                terms[r] = matchingTerms(q, runs.get(r));
+                if (terms[r] == null) return Hits.CUT;   // over the time budget, not known to match nothing
+                if (terms[r].length == 0) return Hits.NONE;
+            }
+
+            // a single run of letters/digits is answered exactly by the dictionary, anything else is verified
+            boolean exact = runs.size() == 1 && runs.get(0).length() == q.text.length();
+            return scanSegments(q, terms, exact);
+        } finally {
+            q.stopped = true;
+        }
+    }
+
+    /**
+     * @return dictionary indexes of the terms which contain the run, null if the time budget is over
+     */
+    private int[] matchingTerms(Query q, String run) {
+        String[] dictionary = q.caseSensitive ? q.snapshot.terms : q.snapshot.lowerTerms;
+        List<ForkJoinTask<int[]>> chunks = new ArrayList<>(dictionary.length / TERM_CHUNK + 1);
+        for (int from = 0; from < dictionary.length; from += TERM_CHUNK) {
+            int start = from, end = Math.min(from + TERM_CHUNK, dictionary.length);
+            chunks.add(pool.submit(() -> {
+                IntList indexes = new IntList();
+                for (int i = start; i < end; i++) {
+                    if (dictionary[i].contains(run)) indexes.addUnique(i);
+                    if ((i & 1023) == 0 && q.isOver()) return null;
+                }
+                return indexes.toArray();
+            }));
+        }
+
+        List<int[]> parts = new ArrayList<>(chunks.size());
+        for (ForkJoinTask<int[]> chunk : chunks) {
+            int[] part = q.await(chunk);
+            if (part == null) {
+                cancel(chunks);
+                return null;
+            }
+            parts.add(part);
+        }
+        return concat(parts);
+    }
+
+    /**
+     * Matches the segments in parallel, merged from the highest ids down
+     */
+    private Hits scanSegments(Query q, int[][] terms, boolean exact) {
+        int[] bounds = q.snapshot.segmentBounds;
+        List<ForkJoinTask<Hits>> segments = new ArrayList<>(bounds.length);
+        for (int k = bounds.length - 1; k > 0; k--) {
+            int lo = bounds[k - 1], hi = bounds[k];
+            segments.add(pool.submit(() -> scanSegment(q, terms, exact, lo, hi)));
+        }
+
+        List<Hits> parts = new ArrayList<>(segments.size());
+        boolean cut = false;
+        for (ForkJoinTask<Hits> segment : segments) {
+            Hits hits = q.await(segment);
+            if (cut = hits == null) break;   // jobs of the lower segments are missing
+            parts.add(hits);
+        }
+        q.stopped = true;   // segments still running see it between batches
+        cancel(segments);
+
+        return Hits.concat(parts, cut);
+    }
+
+    /**
+     * @return jobs of the segment [lo, hi) which match with their scores, null if the search is over
+     */
+    private Hits scanSegment(Query q, int[][] terms, boolean exact, int lo, int hi) {
+        Snapshot s = q.snapshot;
+        int[][] lists = q.caseSensitive ? s.postings : s.lowerPostings;
+        char[][] weights = q.caseSensitive ? s.weights : s.lowerWeights;
+        BitSet hits = null;                    // bit i is job lo + i
+        float[] text = new float[hi - lo];     // text score of job lo + i
+        int[] frequency = new int[hi - lo];    // weighted frequency of the current run
+        for (int[] run : terms) {
+            BitSet docs = new BitSet(hi - lo);
+            for (int term : run) {
+                int[] posting = lists[term];
+                char[] weight = weights[term];
+                int i = Arrays.binarySearch(posting, lo);
+                for (i = i < 0 ? -i - 1 : i; i < posting.length && posting[i] < hi; i++) {
+                    docs.set(posting[i] - lo);
+                    frequency[posting[i] - lo] += weight[i];
+                }
+            }
+            for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+                text[doc] += (float) Math.log1p(frequency[doc]);
+                frequency[doc] = 0;
+            }
+            if (hits == null) hits = docs;
+            else hits.and(docs);
+            if (hits.isEmpty()) return Hits.NONE;
+            if (q.isOver()) return null;
+        }
+        if (hits == null) hits = s.all.get(lo, hi);   // query without letters or digits, every job is a candidate
+
+        int[] ids = descending(hits, lo);
+        if (!exact && (ids = verify(q, ids)) == null) return null;
+
+        float[] scores = new float[ids.length];
+        for (int i = 0; i < ids.length; i++) 
+            scores[i] = (1 + text[ids[i] - lo]) * s.recency[ids[i]];
+        return new Hits(ids, scores);
+    }
+
+    /**
+     * Reads the candidates batch by batch (ids desc)
+     *
+     * @return the candidates which match, null if the search is over
+     */
+    private int[] verify(Query q, int[] candidates) {
+        BitSet matched = new BitSet();
+        for (int from = 0; from < candidates.length; from += VERIFY_BATCH) {
+            if (q.isOver()) return null;
+
+            int to = Math.min(from + VERIFY_BATCH, candidates.length);
+            Object[] args = new Object[to - from];
+            StringBuilder placeholders = new StringBuilder(args.length * 2);
+            for (int i = from; i < to; i++) {
+                args[i - from] = candidates[i];
+                placeholders.append(i == from ? "?" : ",?");
+            }
+            jdbcTemplate.query(String.format(VERIFY_QUERY, placeholders), args, (RowCallbackHandler) rs -> {
+                if (contains(rs, 2, q.text, q.caseSensitive) || contains(rs, 3, q.text, q.caseSensitive) || contains(rs, 4, q.text, q.caseSensitive))
+                    matched.set(rs.getInt(1));
+            });
+        }
+
+        return descending(matched, 0);
+    }
+
+    private static void cancel(List<? extends ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) task.cancel(false);
+    }
+
+    private static int[] concat(List<int[]> parts) {
+        int length = 0;
+        for (int[] part : parts) length += part.length;
+
+        int[] result = new int[length];
+        int i = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, i, part.length);
+            i += part.length;
+        }
+        return result;
+    }
+
+    private static boolean contains(ResultSet rs, int column, String query, boolean caseSensitive) throws SQLException {
+        String value = rs.getString(column);
+        if (value == null) return false;
+        return (caseSensitive ? value : lower(value)).contains(query);
+    }
+
+    /**
+     * Set bits as ids desc, bit i is id offset + i
+     */
+    private static int[] descending(BitSet bits, int offset) {
+        int[] ids = new int[bits.cardinality()];
+        int i = 0;
+        for (int bit = bits.length() - 1; bit >= 0; bit = bits.previousSetBit(bit - 1))
+            ids[i++] = offset + bit;
+        return ids;
+    }
+
+    static String lower(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        int start = -1;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) tokens.add(text.substring(start));
+
+        return tokens;
+    }
+
+
+    /**
+     * One search, shared by its tasks
+     */
+    private final class Query {
+        final Snapshot snapshot;
+        final String searchText;
+        final String text;   // lower case unless caseSensitive
+        final boolean caseSensitive;
+        final long deadline;
+        volatile boolean stopped;
+        boolean cut;   // over the time budget, set by the searching thread
+
+        Query(Snapshot snapshot, String searchText, boolean caseSensitive, long deadline) {
+            this.snapshot = snapshot;
+            this.searchText = searchText;
+            this.text = caseSensitive ? searchText : lower(searchText);
+            this.caseSensitive = caseSensitive;
+            this.deadline = deadline;
+        }
+
+        boolean isOver() {
+            return stopped || System.nanoTime() - deadline > 0;
+        }
+
+        /**
+         * @return result of the task, null if the time budget is over
+         */
+        <T> T await(ForkJoinTask<T> task) {
+            T result;
+            try {
+                result = task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                result = null;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cut = true;
+                return null;
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+
+            if (result == null) {
+                cut = true;
+                logger.warn("Search [{}] is over the time budget of {} ms, the result is cut", searchText, TimeUnit.NANOSECONDS.toMillis(timeBudget));
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * Jobs found by a search, ids desc with their scores; shared by the cache and never modified.
+     * A cut result stopped at the time budget and may miss jobs.
+     */
+    public static final class Hits {
+        static final Hits NONE = new Hits(NO_IDS, new float[0]);
+        static final Hits CUT = new Hits(NO_IDS, new float[0], true);
+
+        final int[] ids;
+        final float[] scores;
+        final boolean cut;
+
+        Hits(int[] ids, float[] scores) {
+            this(ids, scores, false);
+        }
+
+        Hits(int[] ids, float[] scores, boolean cut) {
+            this.ids = ids;
+            this.scores = scores;
+            this.cut = cut;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public boolean isCut() {
+            return cut;
+        }
+
+        static Hits concat(List<Hits> parts, boolean cut) {
+            int length = 0;
+            for (Hits part : parts) length += part.ids.length;
+
+            Hits result = new Hits(new int[length], new float[length], cut);
+            int i = 0;
+            for (Hits part : parts) {
+                System.arraycopy(part.ids, 0, result.ids, i, part.ids.length);
+                System.arraycopy(part.scores, 0, result.scores, i, part.scores.length);
+                i += part.ids.length;
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * Bounded min-heap of the best scored ids, the worst of them on top. Kept in two primitive arrays,
+     * so offering a candidate allocates nothing.
+     */
+    static final class TopK {
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            ids = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void offer(int id, float score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                up(size++);
+            } else if (size > 0 && worse(ids[0], scores[0], id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                down(0, size);
+            }
+        }
+
+        /**
+         * @return the ids best first; the heap is emptied
+         */
+        int[] toArray() {
+            int[] result = new int[size];
+            for (int n = size; n > 0; n--) {
+                result[n - 1] = ids[0];
+                swap(0, n - 1);
+                down(0, n - 1);
+            }
+            size = 0;
+            return result;
+        }
+
+        /**
+         * Lower score, of equal scores the older (lower id) job is worse
+         */
+        private static boolean worse(int id1, float score1, int id2, float score2) {
+            return score1 < score2 || (score1 == score2 && id1 < id2);
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(ids[i], scores[i], ids[parent], scores[parent])) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void down(int i, int n) {
+            for (int child = 2 * i + 1; child < n; i = child, child = 2 * i + 1) {
+                if (child + 1 < n && worse(ids[child + 1], scores[child + 1], ids[child], scores[child])) child++;
+                if (!worse(ids[child], scores[child], ids[i], scores[i])) return;
+                swap(i, child);
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+    }
+
+
+    /**
+     * Immutable view of the index; replaced as a whole on rebuild.
+     */
+    private static final class Snapshot {
+        final String[] terms;
+        final int[][] postings;
+        final char[][] weights;        // weighted frequency of the term in the job of the same posting index
+        final String[] lowerTerms;
+        final int[][] lowerPostings;
+        final char[][] lowerWeights;
+        final BitSet all;
+        final float[] recency;         // id -> boost, 1..2
+        final int docCount;
+        final int[] segmentBounds;     // segment k is ids [segmentBounds[k], segmentBounds[k + 1])
+
+        Snapshot(Map<String, Postings> terms, Map<String, Postings> lowerTerms, BitSet all, float[] recency, int segmentDocs) {
+            this.terms = terms.keySet().toArray(new String[terms.size()]);
+            this.postings = new int[this.terms.length][];
+            this.weights = new char[this.terms.length][];
+            toArrays(this.terms, terms, postings, weights);
+            this.lowerTerms = lowerTerms.keySet().toArray(new String[lowerTerms.size()]);
+            this.lowerPostings = new int[this.lowerTerms.length][];
+            this.lowerWeights = new char[this.lowerTerms.length][];
+            toArrays(this.lowerTerms, lowerTerms, lowerPostings, lowerWeights);
+            this.all = all;
+            this.recency = recency;
+            this.docCount = all.cardinality();
+            this.segmentBounds = segmentBounds(all, segmentDocs);
+        }
+
+        private static int[] segmentBounds(BitSet all, int segmentDocs) {
+            IntList bounds = new IntList();
+            bounds.addUnique(0);
+            int docs = 0;
+            for (int id = all.nextSetBit(0); id >= 0; id = all.nextSetBit(id + 1)) {
+                if (++docs % segmentDocs == 0) bounds.addUnique(id + 1);
+            }
+            bounds.addUnique(all.length());
+            return bounds.toArray();
+        }
+
+        private static void toArrays(String[] keys, Map<String, Postings> map, int[][] postings, char[][] weights) {
+            for (int i = 0; i < keys.length; i++) {
+                Postings list = map.get(keys[i]);
+                list.sort();
+                postings[i] = Arrays.copyOf(list.ids, list.size);
+                weights[i] = Arrays.copyOf(list.weights, list.size);
+            }
+        }
+    }
+
+
+    static final class Builder {
+        private final Map<String, Postings> terms = new HashMap<>();
+        private final Map<String, Postings> lowerTerms = new HashMap<>();
+        private final BitSet all = new BitSet();
+        private int[] days = new int[0];   // id -> epoch day of publishing, NO_DAY if unknown
+        private int newest = NO_DAY;
+
+        /**
+         * @param published used for recency when it is a date (yyyy-MM-dd..), otherwise insertDate
+         */
+        void add(int id, String jobTitle, String company, String content, String published, String insertDate) {
+            all.set(id);
+            String[] fields = {jobTitle, company, content};
+            for (int f = 0; f < fields.length; f++) {
+                if (fields[f] == null) continue;
+                for (String token : tokenize(fields[f])) post(terms, token, id, FIELD_WEIGHTS[f]);
+                for (String token : tokenize(lower(fields[f]))) post(lowerTerms, token, id, FIELD_WEIGHTS[f]);
+            }
+
+            int day = epochDay(published);
+            if (day == NO_DAY) day = epochDay(insertDate);
+            if (id >= days.length) {
+                int length = days.length;
+                days = Arrays.copyOf(days, Math.max(id + 1, length * 2));
+                Arrays.fill(days, length, days.length, NO_DAY);
+            }
+            days[id] = day;
+            newest = Math.max(newest, day);
+        }
+
+        private static int epochDay(String date) {
+            if (date == null || date.length() < 10) return NO_DAY;
+            try {
+                return (int) LocalDate.parse(date.substring(0, 10)).toEpochDay();
+            } catch (DateTimeParseException ex) {
+                return NO_DAY;   // published of some sites is free text ("Avqust 08, 2017")
+            }
+        }
+
+        private static void post(Map<String, Postings> map, String token, int id, int weight) {
+            map.computeIfAbsent(token, t -> new Postings()).add(id, weight);
+        }
+
+        Snapshot build(int segmentDocs) {
+            float[] recency = new float[all.length()];
+            for (int id = 0; id < recency.length; id++) 
+                recency[id] = days[id] == NO_DAY ? 1 : (float) (1 + 1 / (1 + (newest - days[id]) / RECENCY_DAYS));   // unknown date, no boost
+            return new Snapshot(terms, lowerTerms, all, recency, segmentDocs);
+        }
+    }
+
+
+    /**
+     * Growable primitive list, sorted on toArray().
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        private int last = -1;
+
+        void addUnique(int value) {
+            if (value == last) return;
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+            last = value;
+        }
+
+        int[] toArray() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+
+    /**
+     * Posting list of a term with weighted frequencies (saturated at Character.MAX_VALUE). Ids arrive in
+     * scan order, the tokens of a job one after another, so the list is sorted once it is complete.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private char[] weights = new char[4];
+        private int size;
+        private boolean sorted = true;
+
+        void add(int id, int weight) {
+            if (size > 0 && ids[size - 1] == id) {   // same job, repeated token
+                weights[size - 1] = (char) Math.min(Character.MAX_VALUE, weights[size - 1] + weight);
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+                weights = Arrays.copyOf(weights, size << 1);
+            }
+            if (size > 0 && ids[size - 1] > id) sorted = false;
+            ids[size] = id;
+            weights[size++] = (char) Math.min(Character.MAX_VALUE, weight);
+        }
+
+        void sort() {
+            if (sorted) return;
+            long[] pairs = new long[size];
+            for (int i = 0; i < size; i++) pairs[i] = (long) ids[i] << 16 | weights[i];
+            Arrays.sort(pairs);
+            for (int i = 0; i < size; i++) {
+                ids[i] = (int) (pairs[i] >>> 16);
+                weights[i] = (char) pairs[i];
+            }
+            sorted = true;
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.StorageMode;
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-only copy of all_vacancies in a memory-mapped file, used when developerjobs.storage = SNAPSHOT.
+ *
+ * Layout (big endian):
+ *   header  - magic, format, record count, field count
+ *   records - ordered by id desc, fixed width: id + (offset, length) of every field in the blob, length -1 for null
+ *   blob    - UTF-8 bytes of all strings
+ *
+ * Jobs are decoded straight from the mapping, without Hibernate. A new file is written next to the
+ * old one and moved over it, then the mapping is swapped; readers holding the old snapshot keep using it.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class SnapshotStore implements JobReader {
+
+    private final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final String QUERY = "select id, link, job_title, company, salary, published, deadline, website, content, "
+                                      + "insert_date, job_type, location, country_code, url_suffix from all_vacancies order by id desc";
+
+    static final int MAGIC = 0x444A5331;   // "DJS1"
+    static final int FORMAT = 1;
+    static final int HEADER = 16;
+
+    // field order in a record, same as QUERY columns after id
+    static final int LINK = 0, JOB_TITLE = 1, COMPANY = 2, SALARY = 3, PUBLISHED = 4, DEADLINE = 5, WEBSITE = 6, CONTENT = 7,
+                     INSERT_DATE = 8, JOB_TYPE = 9, LOCATION = 10, COUNTRY_CODE = 11, URL_SUFFIX = 12;
+    static final int FIELDS = 13;
+    static final int RECORD = 4 + FIELDS * 8;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${developerjobs.storage:DATABASE}")
+    private StorageMode storage;
+
+    @Value("${developerjobs.snapshot.file:developer_jobs.snapshot}")
+    private String file;
+
+    private volatile Snapshot snapshot;
+
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) build();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before caches of JobService are cleared
+    public void onDataChanged(DataChangedEvent event) {
+        if (isEnabled()) build();
+    }
+
+    public boolean isEnabled() {
+        return storage == StorageMode.SNAPSHOT;
+    }
+
+    public synchronized void build() {
+        long start = System.currentTimeMillis();
+        Path target = new File(file).getAbsoluteFile().toPath();
+        try {
+            Path tmp = write(target);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshot = new Snapshot(map(target));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Snapshot could not be written to " + target, ex);
+        }
+        logger.info("Snapshot built: {} jobs in {} ms, {}", snapshot.count, System.currentTimeMillis() - start, target);
+    }
+
+    @Override
+    public List<JobSummary> findSummaries(String countryCode, int pageIndex) {
+        Snapshot s = snapshot;
+        int[] records = s.countries.get(countryCode);
+        List<JobSummary> jobs = new ArrayList<>(PageBoundaryCache.PAGE_SIZE);
+        if (records == null) return jobs;
+
+        long from = Math.max(pageIndex, 0) * (long) PageBoundaryCache.PAGE_SIZE;   // as PageBoundaryCache, no page before the first
+        for (int i = (int) Math.min(from, records.length), to = Math.min(i + PageBoundaryCache.PAGE_SIZE, records.length); i < to; i++)
+            jobs.add(s.summary(records[i]));
+
+        return jobs;
+    }
+
+    @Override
+    public List<JobSummary> findSummaries(int[] ids) {
+        Snapshot s = snapshot;
+        List<JobSummary> jobs = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            int record = s.find(id);
+            if (record >= 0) jobs.add(s.summary(record));
+        }
+
+        return jobs;
+    }
+
+    @Override
+    public JobInfo findByIdAndUrlSuffix(int id, String urlSuffix) {
+        Snapshot s = snapshot;
+        int record = s.find(id);
+        if (record < 0 || !urlSuffix.equals(s.string(record, URL_SUFFIX))) return null;
+
+        return s.job(record);
+    }
+
+    @Override
+    public Map<String, Integer> countGroupByCountryCode() {
+        Map<String, Integer> counts = new HashMap<>();
+        snapshot.countries.forEach((code, records) -> counts.put(code, records.length));
+        return counts;
+    }
+
+
+    private Path write(Path target) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        ByteArrayOutputStream blob = new ByteArrayOutputStream(1 << 20);
+        int[] count = {0};
+
+        jdbcTemplate.query(QUERY, (RowCallbackHandler) rs -> {
+            try {
+                records.writeInt(rs.getInt(1));
+                for (int field = 0; field < FIELDS; field++) {
+                    String value = rs.getString(field + 2);
+                    if (value == null) {
+                        records.writeInt(0);
+                        records.writeInt(-1);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        records.writeInt(blob.size());
+                        records.writeInt(bytes.length);
+                        blob.write(bytes, 0, bytes.length);
+                    }
+                }
+                count[0]++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(FORMAT).putInt(count[0]).putInt(FIELDS).flip();
+
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer[] content = {header, ByteBuffer.wrap(recordBytes.toByteArray()), ByteBuffer.wrap(blob.toByteArray())};
+            while (content[2].hasRemaining()) channel.write(content);
+            channel.force(true);
+        }
+
+        return tmp;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());   // stays valid after close
+        }
+    }
+
+
+    /**
+     * One mapped file. Only absolute reads are used on the shared buffer, so it is safe for concurrent readers.
+     */
+    static final class Snapshot {
+        final ByteBuffer buffer;
+        final int count;
+        final int blobStart;
+        final Map<String, int[]> countries;   // country code -> records, ordered by id desc
+
+        Snapshot(ByteBuffer buffer) {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT || buffer.getInt(12) != FIELDS)
+                throw new IllegalStateException("Not a snapshot file of format " + FORMAT);
+
+            this.buffer = buffer;
+            this.count = buffer.getInt(8);
+            this.blobStart = HEADER + count * RECORD;
+
+            Map<String, List<Integer>> byCountry = new HashMap<>();
+            for (int record = 0; record < count; record++) {
+                String code = string(record, COUNTRY_CODE);
+                if (code != null) byCountry.computeIfAbsent(code, c -> new ArrayList<>()).add(record);
+            }
+            Map<String, int[]> countries = new HashMap<>();
+            byCountry.forEach((code, records) -> countries.put(code, records.stream().mapToInt(Integer::intValue).toArray()));
+            this.countries = Collections.unmodifiableMap(countries);
+        }
+
+        int id(int record) {
+            return buffer.getInt(HEADER + record * RECORD);
+        }
+
+        /**
+         * Binary search over ids (desc).
+         */
+        int find(int id) {
+            int low = 0, high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = id(mid);
+                if (midId == id) return mid;
+                if (midId > id) low = mid + 1;
+                else high = mid - 1;
+            }
+            return -1;
+        }
+
+        String string(int record, int field) {
+            int position = HEADER + record * RECORD + 4 + field * 8;
+            int length = buffer.getInt(position + 4);
+            if (length < 0) return null;
+
+            byte[] bytes = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(blobStart + buffer.getInt(position));
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        JobSummary summary(int record) {
+            return new JobSummary(id(record), string(record, JOB_TITLE), string(record, COMPANY), string(record, SALARY),
+                                  string(record, PUBLISHED), string(record, DEADLINE), string(record, WEBSITE),
+                                  string(record, INSERT_DATE), string(record, LOCATION), string(record, URL_SUFFIX));
+        }
+
+        JobInfo job(int record) {
+            JobInfo job = new JobInfo();
+            job.setId(id(record));
+            job.setLink(string(record, LINK));
+            job.setJobTitle(string(record, JOB_TITLE));
+            job.setCompany(string(record, COMPANY));
+            job.setSalary(string(record, SALARY));
+            job.setPublished(string(record, PUBLISHED));
+            job.setDeadline(string(record, DEADLINE));
+            job.setWebsite(string(record, WEBSITE));
+            job.setContent(string(record, CONTENT));
+            job.setInsertDate(string(record, INSERT_DATE));
+            job.setJobType(string(record, JOB_TYPE));
+            job.setLocation(string(record, LOCATION));
+            job.setCountryCode(string(record, COUNTRY_CODE));
+            job.setUrlSuffix(string(record, URL_SUFFIX));
+            return job;
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package az.mm.developerjobs.trace;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * Spans of the request being handled by the current thread.
+ *
+ * Each thread has one instance, its arrays are reused from request to request, so recording a span
+ * only writes a few array slots. Spans are turned into a SlowTrace (and their arguments formatted)
+ * only when the request was slow.
+ *
+ * A request handled asynchronously takes its trace along: the trace is detached from the request thread
+ * (which continues with a spare one), attached to the threads working on the request, and becomes a spare
+ * when the request has ended and no thread holds it any more.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public final class RequestTrace {
+
+    static final int MAX_SPANS = 256;
+
+    private static final ThreadLocal<RequestTrace> CURRENT = ThreadLocal.withInitial(RequestTrace::new);
+    private static final Queue<RequestTrace> SPARE = new ConcurrentLinkedQueue<>();
+
+    private final Object[] names = new Object[MAX_SPANS];   // Method or String
+    private final Object[][] args = new Object[MAX_SPANS][];
+    private final long[] starts = new long[MAX_SPANS];
+    private final long[] ends = new long[MAX_SPANS];
+    private final int[] depths = new int[MAX_SPANS];
+
+    private boolean active;
+    private long start;
+    private int size;
+    private int depth;
+    private int dropped;
+
+    private final AtomicInteger holders = new AtomicInteger();   // the request and the threads that retained it
+    private boolean detached;
+
+
+    private RequestTrace() {
+    }
+
+    static RequestTrace begin() {
+        RequestTrace trace = CURRENT.get();
+        trace.active = true;
+        trace.start = System.nanoTime();
+        trace.size = trace.depth = trace.dropped = 0;
+        trace.holders.set(1);
+        return trace;
+    }
+
+    /**
+     * The request went async: the current thread continues with a spare trace, this one is ended later
+     */
+    static void detach(RequestTrace trace) {
+        if (CURRENT.get() != trace) return;
+        trace.detached = true;
+        RequestTrace spare = SPARE.poll();
+        CURRENT.set(spare != null ? spare : new RequestTrace());
+    }
+
+    /**
+     * Keeps the trace of the current request for another thread (see attach), until release().
+     *
+     * @return null when no request is traced on this thread
+     */
+    public static RequestTrace retain() {
+        RequestTrace trace = CURRENT.get();
+        if (!trace.active) return null;
+        trace.holders.incrementAndGet();
+        return trace;
+    }
+
+    public void release() {
+        if (holders.decrementAndGet() == 0 && detached) {
+            detached = false;
+            SPARE.offer(this);
+        }
+    }
+
+    /**
+     * Spans of the current thread go to the given trace from now on.
+     *
+     * @return trace the thread had before, to attach it back when the work is done
+     */
+    public static RequestTrace attach(RequestTrace trace) {
+        RequestTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return previous;
+    }
+
+    /**
+     * Opens a span of a method call, args are kept by reference and formatted only if the request is slow.
+     *
+     * @return span to pass to exit(), -1 when no request is traced on this thread
+     */
+    public static int enter(Method method, Object[] args) {
+        RequestTrace trace = CURRENT.get();
+        if (!trace.active) return -1;
+        return trace.open(method, args, System.nanoTime());
+    }
+
+    public static void exit(int span) {
+        if (span < 0) return;
+        RequestTrace trace = CURRENT.get();
+        trace.ends[span] = System.nanoTime();
+        trace.depth--;
+    }
+
+    /**
+     * Adds a finished span, e.g. rendering measured by an interceptor
+     */
+    public static void record(String name, long start, long end) {
+        RequestTrace trace = CURRENT.get();
+        if (!trace.active) return;
+        int span = trace.open(name, null, start);
+        if (span >= 0) {
+            trace.ends[span] = end;
+            trace.depth--;
+        }
+    }
+
+    private int open(Object name, Object[] args, long start) {
+        if (size == MAX_SPANS) {
+            dropped++;
+            return -1;
+        }
+        int span = size++;
+        names[span] = name;
+        this.args[span] = args;
+        starts[span] = start;
+        ends[span] = 0;
+        depths[span] = depth++;
+        return span;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Ends the trace and releases the references to arguments
+     */
+    void end() {
+        active = false;
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(args, 0, size, null);
+        release();
+    }
+
+    List<SlowTrace.Span> spans() {
+        List<SlowTrace.Span> spans = new ArrayList<>(size + 1);
+        for (int i = 0; i < size; i++) {
+            long end = ends[i] == 0 ? System.nanoTime() : ends[i];   // still open, e.g. an exception was thrown
+            spans.add(new SlowTrace.Span(name(names[i]), depths[i], micros(starts[i] - start), micros(end - starts[i]),
+                                         statement(names[i]), args[i] == null ? null : Arrays.deepToString(args[i])));
+        }
+        if (dropped > 0) spans.add(new SlowTrace.Span(dropped + " more spans", 0, 0, 0, null, null));
+        return spans;
+    }
+
+    private static String name(Object name) {
+        if (!(name instanceof Method)) return String.valueOf(name);
+        Method method = (Method) name;
+        return method.getDeclaringClass().getSimpleName() + '.' + method.getName();
+    }
+
+    /**
+     * Query of a repository method, derived queries (findByIdAndUrlSuffix) have none
+     */
+    private static String statement(Object name) {
+        Query query = name instanceof Method ? ((Method) name).getAnnotation(Query.class) : null;
+        return query == null ? null : query.value();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,104 @@
+package az.mm.developerjobs.trace;
+
+import java.util.List;
+
+/**
+ * A request slower than developerjobs.trace.threshold, with its spans in start order.
+ * Times are in microseconds, span offsets are from the start of the request.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class SlowTrace {
+
+    private final long timestamp;
+    private final String request;
+    private final int status;
+    private final long duration;
+    private final List<Span> spans;
+
+    SlowTrace(long timestamp, String request, int status, long duration, List<Span> spans) {
+        this.timestamp = timestamp;
+        this.request = request;
+        this.status = status;
+        this.duration = duration;
+        this.spans = spans;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(request).append(" - ").append(status).append(", ").append(duration / 1000.0).append(" ms");
+        for (Span span : spans) {
+            text.append("\n  ");
+            for (int i = 0; i < span.depth; i++) text.append("  ");
+            text.append(String.format("+%.1f ms %.1f ms %s", span.offset / 1000.0, span.duration / 1000.0, span.name));
+            if (span.statement != null) text.append(" [").append(span.statement).append(']');
+            if (span.args != null) text.append(' ').append(span.args);
+        }
+        return text.toString();
+    }
+
+
+    public static class Span {
+        private final String name;
+        private final int depth;
+        private final long offset;
+        private final long duration;
+        private final String statement;
+        private final String args;
+
+        Span(String name, int depth, long offset, long duration, String statement, String args) {
+            this.name = name;
+            this.depth = depth;
+            this.offset = offset;
+            this.duration = duration;
+            this.statement = statement;
+            this.args = args;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public String getStatement() {
+            return statement;
+        }
+
+        public String getArgs() {
+            return args;
+        }
+    }
+
+}
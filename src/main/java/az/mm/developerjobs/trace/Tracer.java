@@ -0,0 +1,80 @@
+package az.mm.developerjobs.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts and ends request traces (see TraceFilter). Requests slower than developerjobs.trace.threshold
+ * are logged to the "slow-requests" logger and the last developerjobs.trace.keep of them are kept
+ * for /admin/traces.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class Tracer {
+
+    private final Logger slowLog = LoggerFactory.getLogger("slow-requests");
+
+    private final long threshold;   // nanos
+    private final SlowTrace[] ring;
+    private int next;               // index of the next trace in ring
+
+
+    public Tracer(@Value("${developerjobs.trace.threshold:500}") long thresholdMillis,
+                  @Value("${developerjobs.trace.keep:100}") int keep) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.ring = new SlowTrace[Math.max(1, keep)];
+    }
+
+    public RequestTrace begin() {
+        return RequestTrace.begin();
+    }
+
+    /**
+     * The request continues asynchronously, the trace is ended by end() when the response is complete
+     */
+    public void detach(RequestTrace trace) {
+        RequestTrace.detach(trace);
+    }
+
+    public void end(RequestTrace trace, HttpServletRequest request, int status) {
+        try {
+            long elapsed = trace.elapsedNanos();
+            if (elapsed < threshold) return;
+
+            String query = request.getQueryString();
+            String url = request.getMethod() + ' ' + request.getRequestURI() + (query == null ? "" : '?' + query);
+            SlowTrace slow = new SlowTrace(System.currentTimeMillis(), url, status, TimeUnit.NANOSECONDS.toMicros(elapsed), trace.spans());
+            add(slow);
+            slowLog.warn("Slow request {}", slow);
+        } finally {
+            trace.end();
+        }
+    }
+
+    private synchronized void add(SlowTrace trace) {
+        ring[next] = trace;
+        next = (next + 1) % ring.length;
+    }
+
+    /**
+     * @return kept slow traces, the latest first
+     */
+    public synchronized List<SlowTrace> getSlowTraces() {
+        List<SlowTrace> traces = new ArrayList<>(ring.length);
+        for (int i = 1; i <= ring.length; i++) {
+            SlowTrace trace = ring[(next - i + ring.length) % ring.length];
+            if (trace == null) break;
+            traces.add(trace);
+        }
+        return Collections.unmodifiableList(traces);
+    }
+
+}
@@ -0,0 +1,115 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.trace.RequestTrace;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of threads for one kind of work (search, listing, mail), so that slow work of one
+ * kind cannot take the threads of another: handlers submit their work here and return the future,
+ * the servlet thread is released until the result is rendered.
+ *
+ * When the threads are busy and the queue is full, submit() fails at once instead of queueing the
+ * request (IndexController answers 503). With 0 threads the work runs on the calling thread.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;   // null - tasks run on the calling thread
+    private final int queueSize;
+
+    private final LongAdder rejected = new LongAdder();
+
+
+    public Bulkhead(String name, int threads, int queueSize) {
+        if (threads < 0 || queueSize < 1) throw new IllegalArgumentException("threads must not be negative, queueSize must be positive");
+        this.name = name;
+        this.queueSize = queueSize;
+        if (threads == 0) {
+            executor = null;
+            return;
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the task on a thread of the bulkhead, the request trace of the caller is continued there.
+     *
+     * @throws RejectedExecutionException when the threads are busy and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (executor == null) {
+            run(task, future);
+            return future;
+        }
+
+        RequestTrace trace = RequestTrace.retain();
+        try {
+            executor.execute(() -> {
+                RequestTrace previous = trace == null ? null : RequestTrace.attach(trace);
+                try {
+                    run(task, future);
+                } finally {
+                    if (trace != null) {
+                        RequestTrace.attach(previous);
+                        trace.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            if (trace != null) trace.release();
+            rejected.increment();
+            throw new RejectedExecutionException("Bulkhead " + name + " is full, " + queueSize + " tasks are waiting");
+        }
+        return future;
+    }
+
+    private static <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        try {
+            future.complete(task.call());
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+
+    public void shutdown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return executor == null ? 0 : executor.getMaximumPoolSize();
+    }
+
+    public int getActive() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public int getQueued() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+}
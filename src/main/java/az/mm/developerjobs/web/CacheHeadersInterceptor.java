@@ -0,0 +1,94 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import az.mm.developerjobs.service.DataVersion;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Sets ETag, Last-Modified and Cache-Control of job pages (/, /country, /job/..) before the view is rendered.
+ *
+ * The ETag is a hash of the url, the job ids in the model and the data version; only responses
+ * with an ETag are stored by ResponseCacheFilter (e.g. "job not found" pages are not).
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class CacheHeadersInterceptor extends HandlerInterceptorAdapter {
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @Value("${developerjobs.cache.responses.max-age:60}")
+    private int maxAge;
+
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView model) throws Exception {
+        if (model == null || !"GET".equals(request.getMethod())) return;
+
+        long hash = fnv(FNV_OFFSET, request.getRequestURI());
+        hash = fnv(hash, request.getQueryString());
+        long lastModified = 0;
+
+        Map<String, Object> attributes = model.getModel();
+        Object job = attributes.get("job");
+        Object jobList = attributes.get("jobList");
+        if (job instanceof JobInfo) {
+            JobInfo j = (JobInfo) job;
+            hash = fnv(hash, j.getId());
+            lastModified = toMillis(j.getInsertDate());
+        } else if (jobList instanceof List) {
+            for (Object o : (List<?>) jobList) {
+                JobSummary j = (JobSummary) o;
+                hash = fnv(hash, j.getId());
+                lastModified = Math.max(lastModified, toMillis(j.getInsertDate()));
+            }
+        } else {
+            return;   // not a job page
+        }
+
+        response.setHeader("ETag", "\"" + dataVersion.current() + "-" + Long.toHexString(hash) + "\"");
+        response.setHeader("Cache-Control", "public, max-age=" + maxAge);
+        if (lastModified > 0) response.setDateHeader("Last-Modified", lastModified);
+    }
+
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long fnv(long hash, String value) {
+        if (value == null) return hash * FNV_PRIME;
+        for (int i = 0; i < value.length(); i++) hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        return hash;
+    }
+
+    private static long fnv(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * insert_date is "yyyy-MM-dd HH:mm:ss" in UTC (sqlite CURRENT_TIMESTAMP)
+     */
+    private static long toMillis(String insertDate) {
+        if (insertDate == null || insertDate.length() < 19) return 0;
+        try {
+            return LocalDateTime.parse(insertDate.substring(0, 19).replace(' ', 'T')).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            return 0;
+        }
+    }
+
+}
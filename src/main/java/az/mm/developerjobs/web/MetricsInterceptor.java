@@ -0,0 +1,90 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.metrics.Histogram;
+import az.mm.developerjobs.metrics.Metrics;
+import az.mm.developerjobs.trace.RequestTrace;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Times controller handlers, from the first interceptor to the end of rendering, and the JSP
+ * rendering alone, which is added to the request trace too. Responses served by ResponseCacheFilter
+ * don't reach the handlers and are not counted. Handlers running on a Bulkhead are timed from the first
+ * dispatch to the end of the async dispatch, which renders the view.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class MetricsInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String START = MetricsInterceptor.class.getName() + ".start";
+    private static final String RENDER_START = MetricsInterceptor.class.getName() + ".renderStart";
+
+    @Autowired
+    private Metrics metrics;
+
+    private final ConcurrentHashMap<Method, HandlerTimers> timers = new ConcurrentHashMap<>();
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC)
+            request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView model) throws Exception {
+        if (model != null && model.getViewName() != null) request.setAttribute(RENDER_START, System.nanoTime());
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        Long start = (Long) request.getAttribute(START);
+        if (start == null) return;
+
+        long end = System.nanoTime();
+        HandlerTimers handlerTimers = timers(((HandlerMethod) handler).getMethod());
+        int status = response.getStatus();
+        Histogram timer = ex != null || status >= 500 ? handlerTimers.serverError
+                        : status >= 400 ? handlerTimers.clientError
+                        : handlerTimers.success;
+        timer.record(end - start);
+
+        Long renderStart = (Long) request.getAttribute(RENDER_START);
+        if (renderStart != null) {
+            handlerTimers.render.record(end - renderStart);
+            RequestTrace.record("render", renderStart, end);
+        }
+    }
+
+    private HandlerTimers timers(Method method) {
+        HandlerTimers handlerTimers = timers.get(method);
+        return handlerTimers != null ? handlerTimers : timers.computeIfAbsent(method, m -> new HandlerTimers(metrics, m.getName()));
+    }
+
+
+    private static final class HandlerTimers {
+        final Histogram success;
+        final Histogram clientError;
+        final Histogram serverError;
+        final Histogram render;
+
+        HandlerTimers(Metrics metrics, String handler) {
+            String name = "http_server_requests_seconds", help = "Time of requests handled by controllers, including rendering";
+            success = metrics.timer(name, help, "handler", handler, "outcome", "SUCCESS");
+            clientError = metrics.timer(name, help, "handler", handler, "outcome", "CLIENT_ERROR");
+            serverError = metrics.timer(name, help, "handler", handler, "outcome", "SERVER_ERROR");
+            render = metrics.timer("view_render_seconds", "Time of JSP rendering", "handler", handler);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package az.mm.developerjobs.web;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Per client IP limits of the expensive endpoints: /search.htm and /sendMail.
+ * A client over its budget gets 429 with Retry-After, page views are not limited.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class RateLimitInterceptor extends HandlerInterceptorAdapter {
+
+    private final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    @Value("${developerjobs.rate-limit.search.per-minute:60}")
+    private int searchPerMinute;
+
+    @Value("${developerjobs.rate-limit.search.burst:20}")
+    private int searchBurst;
+
+    @Value("${developerjobs.rate-limit.mail.per-minute:2}")
+    private int mailPerMinute;
+
+    @Value("${developerjobs.rate-limit.mail.burst:3}")
+    private int mailBurst;
+
+    @Value("${developerjobs.rate-limit.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${developerjobs.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${developerjobs.rate-limit.trusted-proxies:127.0.0.1,0:0:0:0:0:0:0:1}")
+    private String[] trustedProxies;
+
+    private Set<String> proxies;
+
+    private RateLimiter search;
+    private RateLimiter mail;
+
+
+    @PostConstruct
+    public void createLimiters() {
+        proxies = new HashSet<>(Arrays.asList(trustedProxies));
+        search = new RateLimiter("search", searchPerMinute, searchBurst, maxClients);
+        mail = new RateLimiter("mail", mailPerMinute, mailBurst, maxClients);
+    }
+
+    public List<RateLimiter> getLimiters() {
+        return Arrays.asList(search, mail);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        getLimiters().forEach(RateLimiter::evictIdle);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) return true;   // counted by the first dispatch
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimiter limiter = path.equals("/search.htm") ? search
+                            : path.equals("/sendMail") && "POST".equals(request.getMethod()) ? mail
+                            : null;
+        if (limiter == null) return true;
+
+        String client = clientIp(request);
+        long wait = limiter.acquire(client);
+        if (wait == 0) return true;
+
+        logger.info("Rate limit {} exceeded by {}", limiter.getName(), client);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait) + 1)));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, please try again later");
+        return false;
+    }
+
+    /**
+     * X-Forwarded-For is used only on connections from our proxies, otherwise a client could pick its own key.
+     * Entries are read from the right: those added by our proxies are skipped, the first other one is the client.
+     */
+    String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = trustForwardedFor && proxies.contains(remoteAddr) ? request.getHeader("X-FORWARDED-FOR") : null;
+        if (forwardedFor == null) return remoteAddr;
+
+        String[] entries = forwardedFor.split(",");
+        for (int i = entries.length - 1; i >= 0; i--) {
+            String entry = entries[i].trim();
+            if (!entry.isEmpty() && !proxies.contains(entry)) return entry;
+        }
+        return remoteAddr;
+    }
+
+}
@@ -0,0 +1,126 @@
+package az.mm.developerjobs.web;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per client, lock-free.
+ *
+ * A bucket is one AtomicLong: the time its tokens are used up until (GCRA). A request is allowed while
+ * that time stays within burst intervals from now, and moves it one interval forward with a CAS.
+ * A bucket whose time is in the past is full again and holds no state, so it is evicted by a periodic
+ * evictIdle() call. When maxClients are tracked anyway, a new client evicts the idle buckets and, if there
+ * are none, the least recently used one, so clients rotating addresses can't lock new visitors out.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final long interval;    // nanos per token
+    private final long tolerance;   // burst * interval
+    private final int maxClients;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+
+    public RateLimiter(String name, int permitsPerMinute, int burst, int maxClients) {
+        this(name, permitsPerMinute, burst, maxClients, System::nanoTime);
+    }
+
+    RateLimiter(String name, int permitsPerMinute, int burst, int maxClients, LongSupplier clock) {
+        if (permitsPerMinute < 1 || burst < 1) throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        this.name = name;
+        this.interval = TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+        this.tolerance = interval * burst;
+        this.maxClients = maxClients;
+        this.clock = clock;
+    }
+
+    /**
+     * @return 0 if the request is allowed, otherwise nanos until the client gets a token
+     */
+    public long acquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucket(client, now);
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > tolerance) {
+                rejected.increment();
+                return next - now - tolerance;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes buckets which are full again
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(b -> b.get() - now <= 0);
+    }
+
+    private AtomicLong bucket(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket != null) return bucket;
+
+        if (buckets.size() >= maxClients) makeRoom(now);
+        return buckets.computeIfAbsent(client, c -> new AtomicLong(now));
+    }
+
+    /**
+     * One scan removes all idle buckets, so the next new clients are inserted without it.
+     * Only when every bucket is in use the least recently used one (earliest time) is removed.
+     */
+    private synchronized void makeRoom(long now) {
+        if (buckets.size() < maxClients) return;   // made by another thread
+
+        String oldest = null;
+        long oldestTime = 0;
+        for (Map.Entry<String, AtomicLong> e : buckets.entrySet()) {
+            long time = e.getValue().get();
+            if (time - now <= 0) {
+                buckets.remove(e.getKey(), e.getValue());
+            } else if (oldest == null || time - oldestTime < 0) {
+                oldest = e.getKey();
+                oldestTime = time;
+            }
+        }
+        if (buckets.size() >= maxClients && oldest != null) buckets.remove(oldest);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long allowedCount() {
+        return allowed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[clients=%d/%d, allowed=%d, rejected=%d]", name, size(), maxClients, allowedCount(), rejectedCount());
+    }
+
+}
@@ -0,0 +1,217 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.constant.JobFacet;
+import az.mm.developerjobs.service.DataChangedEvent;
+import az.mm.developerjobs.service.DataVersion;
+import az.mm.developerjobs.service.LruCache;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Full response cache of job pages (/, /country, /job/..).
+ *
+ * Rendered pages are kept gzipped together with the headers set by CacheHeadersInterceptor. A repeated
+ * request is served from memory, If-None-Match is answered with 304 - in both cases without calling
+ * the controller. Entries of an older data version are ignored.
+ *
+ * Entries are keyed by the path and the parameters the pages read (id, page, searchText, facets), so other
+ * parameters share the entry. A response starting a session (Set-Cookie) or answering a session id from the
+ * url is not stored: its body or headers belong to one visitor.
+ *
+ * Pages handled asynchronously are rendered by the async dispatch into the wrapper created by the first
+ * dispatch, so the response is stored and sent when the async dispatch returns.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String VERSION = ResponseCacheFilter.class.getName() + ".version";
+    private static final List<String> KEY_PARAMS = new ArrayList<>(Arrays.asList("id", "page", "searchText"));
+    static {
+        for (JobFacet facet : JobFacet.values()) KEY_PARAMS.add(facet.getParam());
+    }
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @Value("${developerjobs.cache.responses.max-bytes:33554432}")
+    private long maxBytes;
+
+    private LruCache<String, CachedResponse> cache;
+
+
+    @PostConstruct
+    public void createCache() {
+        cache = new LruCache<>("responses", maxBytes, r -> r.gzipped.length);
+    }
+
+    public LruCache<String, CachedResponse> getCache() {
+        return cache;
+    }
+
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        cache.clear();   // entries of the old version would not be served anyway, free the memory
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        if (!"GET".equals(request.getMethod())) return true;
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals("/") || path.equals("/country") || path.startsWith("/job/"));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper;
+        if (isAsyncDispatch(request)) {
+            wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            chain.doFilter(request, response);
+            if (wrapper == null) return;
+        } else {
+            long version = dataVersion.current();
+            CachedResponse cached = cache.getIfPresent(key(request));
+            if (cached != null && cached.version == version) {
+                send(cached, request, response);
+                return;
+            }
+
+            request.setAttribute(VERSION, version);
+            wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+        }
+        if (isAsyncStarted(request)) return;   // completed by the async dispatch
+
+        HttpServletResponse target = (HttpServletResponse) wrapper.getResponse();
+        String etag = wrapper.getHeader("ETag");
+        if (wrapper.getStatusCode() != HttpServletResponse.SC_OK || etag == null || isPrivate(request, wrapper)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        CachedResponse cached = new CachedResponse((Long) request.getAttribute(VERSION), etag, wrapper.getHeader("Last-Modified"),
+                                                   wrapper.getHeader("Cache-Control"), wrapper.getContentType(), gzip(wrapper.getContentAsByteArray()));
+        cache.put(key(request), cached);
+        send(cached, request, target);
+    }
+
+    static String key(HttpServletRequest request) throws UnsupportedEncodingException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        int pathParams = path.indexOf(';');   // ;jsessionid=..
+        StringBuilder key = new StringBuilder(pathParams < 0 ? path : path.substring(0, pathParams)).append('?');
+        for (String param : KEY_PARAMS) {
+            String[] values = request.getParameterValues(param);
+            if (values == null) continue;
+            for (String value : values) key.append(param).append('=').append(URLEncoder.encode(value, "UTF-8")).append('&');
+        }
+        return key.toString();
+    }
+
+    /**
+     * A new session cookie or a session id taken from the url would be served to every visitor
+     */
+    private static boolean isPrivate(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        return !response.getHeaders("Set-Cookie").isEmpty() || (session != null && session.isNew()) || request.isRequestedSessionIdFromURL();
+    }
+
+    private void send(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("ETag", cached.etag);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (cached.cacheControl != null) response.setHeader("Cache-Control", cached.cacheControl);
+        if (cached.lastModified != null) response.setHeader("Last-Modified", cached.lastModified);
+
+        if (matches(request.getHeader("If-None-Match"), cached.etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(cached.contentType);
+        byte[] body;
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = cached.gzipped;
+        } else {
+            body = gunzip(cached.gzipped);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag) || tag.equals("*")) return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(gzipped.length * 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+
+    public static final class CachedResponse {
+        final long version;
+        final String etag;
+        final String lastModified;
+        final String cacheControl;
+        final String contentType;
+        final byte[] gzipped;
+
+        CachedResponse(long version, String etag, String lastModified, String cacheControl, String contentType, byte[] gzipped) {
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.cacheControl = cacheControl;
+            this.contentType = contentType;
+            this.gzipped = gzipped;
+        }
+    }
+
+}
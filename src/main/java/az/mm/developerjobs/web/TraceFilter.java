@@ -0,0 +1,92 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.trace.RequestTrace;
+import az.mm.developerjobs.trace.Tracer;
+import java.io.IOException;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Traces every request, in front of the other filters so responses from ResponseCacheFilter are included.
+ *
+ * A request handled asynchronously (see Bulkhead) is traced until its response is complete: the async
+ * dispatch that renders the view is added to the same trace. The filter is registered for ASYNC dispatches
+ * by WebConfig.
+ *
+ * @author MM <mushfiqazeri@gmail.com>
+ */
+@Component
+public class TraceFilter extends OncePerRequestFilter implements Ordered {
+
+    private static final String TRACE = TraceFilter.class.getName() + ".trace";
+
+    @Autowired
+    private Tracer tracer;
+
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            RequestTrace trace = (RequestTrace) request.getAttribute(TRACE);
+            RequestTrace previous = trace == null ? null : RequestTrace.attach(trace);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                if (previous != null) RequestTrace.attach(previous);
+            }
+            return;
+        }
+
+        RequestTrace trace = tracer.begin();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;   // unless the chain returns
+        try {
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            if (isAsyncStarted(request)) endOnComplete(trace, request, response);
+            else tracer.end(trace, request, status);
+        }
+    }
+
+    private void endOnComplete(RequestTrace trace, HttpServletRequest request, HttpServletResponse response) {
+        tracer.detach(trace);
+        request.setAttribute(TRACE, trace);
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                tracer.end(trace, request, response.getStatus());   // after a timeout or an error too
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+}
@@ -0,0 +1,35 @@
+<%-- 
+    Facet filters of search.jsp and jobs.jsp: every checkbox resubmits the page with the selected
+    values (OR within a facet, AND across facets), counts come from FacetIndex.
+--%>
+
+<%@page contentType="text/html" pageEncoding="UTF-8"%>
+<%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+
+<c:if test="${not empty facets}">
+    <c:url var="facetAction" value="${empty countryCode ? '/search.htm' : '/country'}" />
+    <form action="${facetAction}" method="GET" class="panel panel-default">
+        <div class="panel-body">
+            <c:choose>
+                <c:when test="${empty countryCode}">
+                    <input type="hidden" name="searchText" value="<c:out value="${searchText}"/>">
+                    <input type="hidden" name="size" value="${size}">
+                </c:when>
+                <c:otherwise>
+                    <input type="hidden" name="id" value="<c:out value="${countryCode}"/>">
+                </c:otherwise>
+            </c:choose>
+            <c:forEach var="facet" items="${facets}">
+                <div class="form-group" style="margin-bottom: 5px;">
+                    <strong>${facet.title}:</strong>
+                    <c:forEach var="v" items="${facet.values}">
+                        <label class="checkbox-inline">
+                            <input type="checkbox" name="${facet.param}" value="<c:out value="${v.value}"/>" ${v.selected ? 'checked' : ''} onchange="this.form.submit()">
+                            <c:out value="${v.label}"/> (${v.count})
+                        </label>
+                    </c:forEach>
+                </div>
+            </c:forEach>
+        </div>
+    </form>
+</c:if>
@@ -25,7 +25,7 @@
         <div class="media">
             <div class="media-body">
                 <div class="entry-content" style="line-height: 30px;">
-                    <p style="text-align: justify;">${job.content}</p>
+                    <p style="text-align: justify;">${content}</p>
                 </div>
             </div>
             <div class="fb-like" data-layout="standard" data-action="like" data-size="small" data-show-faces="true" data-share="false"></div>
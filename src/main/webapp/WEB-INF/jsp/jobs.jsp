@@ -21,6 +21,8 @@
 </div>
 <br/><br/>
 
+<jsp:include page="facets.jsp" />
+
 <c:if test="${not empty jobList}">
     <c:forEach var="v" items="${jobList}">
         <div class="panel panel-primary">
@@ -50,15 +52,15 @@
 <center>
     <nav aria-label="Page navigation">
         <ul id="pagination2" class="pagination">
-            <li><a href="${home}country?id=${countryCode}&page=1" aria-label="Previous"><span aria-hidden="true">&laquo;</span></a></li>
-            <li id="prev"><a href="${home}country?id=${countryCode}&page=${pagination.prev}"> prev </a></li>
+            <li><a href="${home}country?id=${countryCode}&page=1${filterQuery}" aria-label="Previous"><span aria-hidden="true">&laquo;</span></a></li>
+            <li id="prev"><a href="${home}country?id=${countryCode}&page=${pagination.prev}${filterQuery}"> prev </a></li>
 
             <c:forEach begin="${pagination.begin}" end="${pagination.end}" varStatus="loop">
-                <li><a href="${home}country?id=${countryCode}&page=${loop.index}"> ${loop.index} </a></li>   
+                <li><a href="${home}country?id=${countryCode}&page=${loop.index}${filterQuery}"> ${loop.index} </a></li>   
             </c:forEach>
 
-            <li id="next"><a  href="${home}country?id=${countryCode}&page=${pagination.next}"> next </a></li>
-            <li><a href="${home}country?id=${countryCode}&page=${pagination.count}"><span aria-hidden="true">&raquo;</span></a></li>
+            <li id="next"><a  href="${home}country?id=${countryCode}&page=${pagination.next}${filterQuery}"> next </a></li>
+            <li><a href="${home}country?id=${countryCode}&page=${pagination.count}${filterQuery}"><span aria-hidden="true">&raquo;</span></a></li>
         </ul>
     </nav>
 </center>
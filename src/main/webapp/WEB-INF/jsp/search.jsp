@@ -37,9 +37,13 @@
 
 <div class="panel panel-default">
     <div class="panel-heading">
-        <h3 class="panel-title">Found ${searchResult.size()} result for keyword <span class="label label-default" style="font-size: 90%;"><c:out value="${searchText}" escapeXml="true"/></span></h3>
+        <h3 class="panel-title">Found ${resultCount} result for keyword <span class="label label-default" style="font-size: 90%;"><c:out value="${searchText}" escapeXml="true"/></span></h3>
     </div>
+    <c:if test="${incomplete}">
+        <div class="panel-body text-warning">The search took too long and was stopped, the result may be incomplete. Please try a more specific keyword.</div>
+    </c:if>
 </div>
+<jsp:include page="facets.jsp" />
 <ul id="search-list" class="list-group">
     <c:if test="${not empty searchResult}">
         <c:forEach var="v" items="${searchResult}">
@@ -56,7 +60,7 @@
                                 <img class="media-object" src="<c:url value="/img/${v.imageSrc}" />" alt="${v.jobTitle}" class="img-responsive" height="100" width="150">
                             </div>
                             <div class="media-body" style="padding-left: 10px;">
-                                <h4 style="font-size: 16px;"><a href="${home}/job/${v.id}/${v.urlSuffix}?searchText=${searchText}" style="color: #4c0d86; margin-bottom: 10px;"><strong>${v.jobTitle} - ${v.company}</strong></a></h4>
+                                <h4 style="font-size: 16px;"><c:url var="jobUrl" value="/job/${v.id}/${v.urlSuffix}"><c:param name="searchText" value="${searchText}"/></c:url><a href="${jobUrl}" style="color: #4c0d86; margin-bottom: 10px;"><strong>${v.jobTitle} - ${v.company}</strong></a></h4>
                                 <div class="search-content"><span style="color:#808080;">${v.insertDate}</div>
                             </div>
                         </div>
@@ -67,32 +71,28 @@
     </c:if>
 </ul>
 
-<script src="<c:url value="/js/paginathing.js" />"></script>
-<script type="text/javascript">
-    jQuery(document).ready(function ($) {
-        $('.list-group').paginathing({
-            perPage: 10,
-//            limitPagination: false,
-            limitPagination: 10,
-            prevNext: true,
-            firstLast: true,
-            prevText: '&laquo;',
-            nextText: '&raquo;',
-            firstText: 'First',
-            lastText: 'Last',
-            containerClass: 'panel-footer',
-            ulClass: 'pagination',
-            liClass: 'page',
-            activeClass: 'active',
-            disabledClass: 'disabled'
-        });
-
-    });
-</script>
-
-
-
-
-
-
-
+<c:if test="${pagination.count > 1}">
+    <center>
+        <nav aria-label="Page navigation">
+            <ul id="pagination2" class="pagination">
+                <c:url var="firstUrl" value="/search.htm"><c:param name="searchText" value="${searchText}"/><c:param name="page" value="1"/><c:param name="size" value="${size}"/></c:url>
+                <c:url var="prevUrl" value="/search.htm"><c:param name="searchText" value="${searchText}"/><c:param name="page" value="${pagination.prev}"/><c:param name="size" value="${size}"/></c:url>
+                <li><a href="${firstUrl}${filterQuery}" aria-label="Previous"><span aria-hidden="true">&laquo;</span></a></li>
+                <li id="prev"><a href="${prevUrl}${filterQuery}"> prev </a></li>
+
+                <c:forEach begin="${pagination.begin}" end="${pagination.end}" varStatus="loop">
+                    <c:url var="pageUrl" value="/search.htm"><c:param name="searchText" value="${searchText}"/><c:param name="page" value="${loop.index}"/><c:param name="size" value="${size}"/></c:url>
+                    <li><a href="${pageUrl}${filterQuery}"> ${loop.index} </a></li>
+                </c:forEach>
+
+                <c:url var="nextUrl" value="/search.htm"><c:param name="searchText" value="${searchText}"/><c:param name="page" value="${pagination.next}"/><c:param name="size" value="${size}"/></c:url>
+                <c:url var="lastUrl" value="/search.htm"><c:param name="searchText" value="${searchText}"/><c:param name="page" value="${pagination.count}"/><c:param name="size" value="${size}"/></c:url>
+                <li id="next"><a href="${nextUrl}${filterQuery}"> next </a></li>
+                <li><a href="${lastUrl}${filterQuery}"><span aria-hidden="true">&raquo;</span></a></li>
+            </ul>
+        </nav>
+    </center>
+    <input type="hidden" id="hidCount" value="${pagination.count}">
+
+    <script src="<c:url value="/js/jobs.js" />"></script>
+</c:if>
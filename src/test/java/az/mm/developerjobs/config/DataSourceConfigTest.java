@@ -0,0 +1,78 @@
+package az.mm.developerjobs.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+public class DataSourceConfigTest {
+
+    private static final byte[] INGESTED = "rows added through /ingest".getBytes(StandardCharsets.US_ASCII);
+
+    private File dir;
+    private File database;
+    private final DataSourceConfig config = new DataSourceConfig();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("datasource").toFile();
+        database = new File(dir, "jobs.sqlite");
+        ReflectionTestUtils.setField(config, "resource", "developer_jobs.sqlite");
+        ReflectionTestUtils.setField(config, "file", database.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Test
+    public void differentBundledDatabaseKeepsCopyByDefault() throws IOException {
+        extractThenBundleAnother();
+
+        assertEquals(database, ReflectionTestUtils.invokeMethod(config, "databaseFile"));
+        assertArrayEquals(INGESTED, Files.readAllBytes(database.toPath()));
+    }
+
+    @Test
+    public void differentBundledDatabaseReplacesCopyWhenEnabled() throws IOException {
+        extractThenBundleAnother();
+        Files.write(new File(database.getPath() + "-wal").toPath(), INGESTED);
+        ReflectionTestUtils.setField(config, "replaceOnChange", true);
+
+        assertEquals(database, ReflectionTestUtils.invokeMethod(config, "databaseFile"));
+        assertArrayEquals(bundled(), Files.readAllBytes(database.toPath()));
+        assertArrayEquals(INGESTED, Files.readAllBytes(new File(database.getPath() + ".replaced").toPath()));
+        assertArrayEquals(INGESTED, Files.readAllBytes(new File(database.getPath() + ".replaced-wal").toPath()));
+        assertFalse(new File(database.getPath() + "-wal").exists());
+
+        ReflectionTestUtils.invokeMethod(config, "databaseFile");   // same bundled database now, kept
+        assertArrayEquals(bundled(), Files.readAllBytes(database.toPath()));
+    }
+
+    /**
+     * Extracted copy with ingested rows, marked as extracted from an older bundled database
+     */
+    private void extractThenBundleAnother() throws IOException {
+        ReflectionTestUtils.invokeMethod(config, "databaseFile");
+        assertArrayEquals(bundled(), Files.readAllBytes(database.toPath()));
+
+        Files.write(database.toPath(), INGESTED);
+        Files.write(new File(database.getPath() + ".bundled").toPath(), "older".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] bundled() throws IOException {
+        return StreamUtils.copyToByteArray(new ClassPathResource("developer_jobs.sqlite").getInputStream());
+    }
+
+}
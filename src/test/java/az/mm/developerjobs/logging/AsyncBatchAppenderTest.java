@@ -0,0 +1,97 @@
+package az.mm.developerjobs.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncBatchAppenderTest {
+
+    private final AsyncBatchAppender async = new AsyncBatchAppender();
+    private final BlockedAppender target = new BlockedAppender();
+
+    @After
+    public void tearDown() {
+        target.release.countDown();
+        async.stop();
+    }
+
+    @Test
+    public void dropsInfoButKeepsWarnWhenQueueIsFull() throws InterruptedException {
+        async.setQueueSize(4);
+        async.setDiscardingThreshold(2);
+        async.addAppender(target);
+        target.start();
+        async.start();
+
+        async.doAppend(event(Level.INFO, "taken by the worker"));
+        assertTrue(target.blocked.await(5, TimeUnit.SECONDS));
+        long dropped = AsyncBatchAppender.droppedCount();
+
+        async.doAppend(event(Level.INFO, "queued 1"));
+        async.doAppend(event(Level.INFO, "queued 2"));
+        async.doAppend(event(Level.INFO, "dropped"));   // 2 places free
+        async.doAppend(event(Level.WARN, "queued 3"));
+        async.doAppend(event(Level.ERROR, "queued 4"));
+        assertEquals(dropped + 1, AsyncBatchAppender.droppedCount());
+
+        target.release.countDown();
+        async.stop();   // writes what is queued
+        assertEquals(5, target.messages.size());
+        assertEquals("queued 4", target.messages.get(4));
+    }
+
+    @Test
+    public void writesJsonLines() {
+        LoggingEvent event = event(Level.ERROR, "Search \"java\"\nfailed");
+        event.setThrowableProxy(new ThrowableProxy(new IllegalStateException("boom")));
+
+        String json = new JsonLinesLayout().doLayout(event);
+
+        assertTrue(json.startsWith("{\"ts\":\"1970-01-01T00:00:01.500Z\",\"level\":\"ERROR\",\"thread\":\"main\","
+                                 + "\"logger\":\"az.mm.Test\",\"msg\":\"Search \\\"java\\\"\\nfailed\",\"exception\":\"java.lang.IllegalStateException: boom"));
+        assertTrue(json.endsWith("\"}" + System.getProperty("line.separator")));
+        assertEquals(1, json.split("\n").length);
+    }
+
+    private static LoggingEvent event(Level level, String message) {
+        LoggingEvent event = new LoggingEvent();
+        event.setTimeStamp(1500);
+        event.setLevel(level);
+        event.setThreadName("main");
+        event.setLoggerName("az.mm.Test");
+        event.setMessage(message);
+        return event;
+    }
+
+
+    /**
+     * Blocks on the first event until released, so the queue can be filled
+     */
+    private static final class BlockedAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            messages.add(event.getFormattedMessage());
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
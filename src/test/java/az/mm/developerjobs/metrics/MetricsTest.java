@@ -0,0 +1,74 @@
+package az.mm.developerjobs.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void writesHistogramBucketsCumulatively() throws IOException {
+        Histogram sizes = metrics.histogram("search_result_size", "Jobs found", new long[]{0, 10, 100});
+        sizes.record(0);
+        sizes.record(7);
+        sizes.record(10);
+        sizes.record(1000);
+
+        assertEquals("# HELP search_result_size Jobs found\n"
+                   + "# TYPE search_result_size histogram\n"
+                   + "search_result_size_bucket{le=\"0\"} 1\n"
+                   + "search_result_size_bucket{le=\"10\"} 3\n"
+                   + "search_result_size_bucket{le=\"100\"} 3\n"
+                   + "search_result_size_bucket{le=\"+Inf\"} 4\n"
+                   + "search_result_size_sum 1017\n"
+                   + "search_result_size_count 4\n", write());
+    }
+
+    @Test
+    public void timersAreExposedInSeconds() throws IOException {
+        Histogram timer = metrics.timer("service_seconds", "Time", "method", "search");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        String text = write();
+        assertTrue(text.contains("service_seconds_bucket{method=\"search\",le=\"0.0025\"} 0\n"));
+        assertTrue(text.contains("service_seconds_bucket{method=\"search\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("service_seconds_sum{method=\"search\"} 0.003\n"));
+    }
+
+    @Test
+    public void sameLabelsGiveSameSeries() {
+        assertSame(metrics.timer("x_seconds", "x", "method", "a"), metrics.timer("x_seconds", "x", "method", "a"));
+    }
+
+    @Test
+    public void writesGaugesAndEscapesLabels() throws IOException {
+        metrics.gauge("pool_active", "Active", () -> 2, "pool", "read\"ers");
+        metrics.counter("hits_total", "Hits", () -> 1.5);
+
+        assertEquals("# HELP hits_total Hits\n"
+                   + "# TYPE hits_total counter\n"
+                   + "hits_total 1.5\n"
+                   + "# HELP pool_active Active\n"
+                   + "# TYPE pool_active gauge\n"
+                   + "pool_active{pool=\"read\\\"ers\"} 2\n", write());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTypeChange() {
+        metrics.gauge("x", "x", () -> 1);
+        metrics.timer("x", "x");
+    }
+
+    private String write() throws IOException {
+        StringWriter out = new StringWriter();
+        metrics.write(out);
+        return out.toString();
+    }
+
+}
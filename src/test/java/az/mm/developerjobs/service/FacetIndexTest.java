@@ -0,0 +1,51 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.JobFacet;
+import az.mm.developerjobs.model.Facet;
+import az.mm.developerjobs.model.FacetFilter;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FacetIndexTest {
+
+    @Test
+    public void filtersAndCountsFacetValues() {
+        FacetIndex.Builder builder = new FacetIndex.Builder();
+        builder.add(1, "boss.az", "Baku", "Full Time ", "031");
+        builder.add(2, "boss.az", "", "", "031");
+        builder.add(3, "rabota.az", "Baku, Azerbaijan", "Full Time ", "031");
+        builder.add(4, "monster.de", "Essen, Nordrhein-Westfalen, 45128", "Contractor ", "276");
+        FacetIndex index = new FacetIndex();
+        index.load(builder);
+
+        EnumSet<JobFacet> facets = EnumSet.allOf(JobFacet.class);
+        FacetFilter filter = new FacetFilter();
+        assertNull(index.filter(filter, facets));
+
+        filter.setWebsite(Arrays.asList("boss.az", "rabota.az"));
+        filter.setLocation(Arrays.asList("Baku"));
+        assertArrayEquals(new int[]{3, 1}, index.filter(filter, facets).toDescendingArray());
+
+        IdBitmap all = IdBitmap.of(new int[]{1, 2, 3, 4});
+        List<Facet> counts = index.count(all, filter, facets);
+        Facet website = counts.get(0);   // counted within Baku only
+        assertEquals("website", website.getParam());
+        assertEquals(2, website.getValues().size());
+        assertEquals(1, website.getValues().get(0).getCount());
+        assertTrue(website.getValues().get(0).isSelected());
+
+        Facet location = counts.get(1);   // counted within boss.az and rabota.az
+        assertEquals("Baku", location.getValues().get(0).getValue());
+        assertEquals(2, location.getValues().get(0).getCount());
+
+        assertEquals("Full Time", counts.get(2).getValues().get(0).getValue());
+        assertEquals("Azerbaijan", counts.get(3).getValues().get(0).getLabel());
+    }
+
+}
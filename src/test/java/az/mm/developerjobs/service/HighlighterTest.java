@@ -0,0 +1,56 @@
+package az.mm.developerjobs.service;
+
+import static az.mm.developerjobs.service.Highlighter.CLOSE;
+import static az.mm.developerjobs.service.Highlighter.OPEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class HighlighterTest {
+
+    private final Highlighter highlighter = new Highlighter();
+
+    @Test
+    public void highlightsEveryOccurrence() {
+        assertEquals("a " + OPEN + "Java" + CLOSE + " and " + OPEN + "Java" + CLOSE,
+                     highlighter.highlight("a Java and Java", "Java", true));
+        assertEquals(OPEN + "aa" + CLOSE + OPEN + "aa" + CLOSE + "a", highlighter.highlight("aaaaa", "aa", true));
+    }
+
+    @Test
+    public void keepsOriginalCaseWhenIgnoringCase() {
+        assertEquals(OPEN + "JAVA" + CLOSE + " " + OPEN + "java" + CLOSE, highlighter.highlight("JAVA java", "Java", false));
+        assertEquals(OPEN + "\u00dcnvan" + CLOSE, highlighter.highlight("\u00dcnvan", "\u00fcnvan", false));
+    }
+
+    @Test
+    public void termIsTakenLiterally() {
+        assertEquals("C" + OPEN + "++" + CLOSE + " or C#", highlighter.highlight("C++ or C#", "++", true));
+        assertSame("abc", highlighter.highlight("abc", "a.c(", true));
+    }
+
+    @Test
+    public void doesNotBreakMarkup() {
+        assertEquals("<div class=\"java\">" + OPEN + "java" + CLOSE + "</div>",
+                     highlighter.highlight("<div class=\"java\">java</div>", "java", true));
+        assertEquals("R&amp;D " + OPEN + "amp" + CLOSE, highlighter.highlight("R&amp;D amp", "amp", true));
+        assertEquals("<p>" + OPEN + "a & b" + CLOSE + "</p>", highlighter.highlight("<p>a & b</p>", "a & b", true));
+    }
+
+    @Test
+    public void skipsStyleAndScript() {
+        assertEquals("<STYLE type=\"text/css\">p { font: bold; }</style><p>" + OPEN + "bold" + CLOSE + "</p>",
+                     highlighter.highlight("<STYLE type=\"text/css\">p { font: bold; }</style><p>bold</p>", "bold", true));
+        assertSame("<script>var bold;", highlighter.highlight("<script>var bold;", "bold", true));
+        assertEquals("<strong>" + OPEN + "bold" + CLOSE + "</strong>", highlighter.highlight("<strong>bold</strong>", "bold", true));
+    }
+
+    @Test
+    public void returnsSameContentWhenNothingToHighlight() {
+        String content = "<p>Java developer</p>";
+        assertSame(content, highlighter.highlight(content, "", true));
+        assertSame(content, highlighter.highlight(content, "python", false));
+        assertSame(content, highlighter.highlight(content, "<p>", true));
+    }
+
+}
@@ -0,0 +1,52 @@
+package az.mm.developerjobs.service;
+
+import java.util.BitSet;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class IdBitmapTest {
+
+    @Test
+    public void keepsIdsOfAnyOrder() {
+        IdBitmap bitmap = IdBitmap.of(new int[]{70000, 5, 3, 5, 65536});
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(65536));
+        assertFalse(bitmap.contains(4));
+        assertArrayEquals(new int[]{70000, 65536, 5, 3}, bitmap.toDescendingArray());
+        assertArrayEquals(new int[]{70000, 3}, bitmap.retain(new int[]{70000, 4, 3}));
+        assertTrue(IdBitmap.of(new int[0]).isEmpty());
+    }
+
+    @Test
+    public void combinesSparseAndDenseGroupsLikeBitSet() {
+        Random random = new Random(42);
+        BitSet a = new BitSet(), b = new BitSet();
+        for (int i = 0; i < 30000; i++) a.set(random.nextInt(20000));            // dense group 0
+        for (int i = 0; i < 500; i++) a.set(65536 + random.nextInt(65536));      // sparse group 1
+        for (int i = 0; i < 3000; i++) b.set(random.nextInt(3 * 65536));         // sparse groups 0-2
+        for (int i = 10000; i < 16000; i++) b.set(i);                            // dense
+
+        IdBitmap x = IdBitmap.of(a.stream().toArray()), y = IdBitmap.of(b.stream().toArray());
+        BitSet and = (BitSet) a.clone(), or = (BitSet) a.clone();
+        and.and(b);
+        or.or(b);
+
+        assertEquals(a.cardinality(), x.cardinality());
+        assertArrayEquals(descending(and), x.and(y).toDescendingArray());
+        assertArrayEquals(descending(or), x.or(y).toDescendingArray());
+        assertEquals(and.cardinality(), x.andCardinality(y));
+        assertEquals(or.cardinality(), y.or(x).cardinality());
+    }
+
+    private static int[] descending(BitSet bits) {
+        int[] ids = new int[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.previousSetBit(bits.length()); i >= 0; i = bits.previousSetBit(i - 1)) ids[n++] = i;
+        return ids;
+    }
+
+}
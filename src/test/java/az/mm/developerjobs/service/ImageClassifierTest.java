@@ -0,0 +1,35 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.ImageSource;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class ImageClassifierTest {
+
+    private final ImageClassifier classifier = new ImageClassifier();
+
+    @Test
+    public void classifiesByWebsite() {
+        assertEquals(ImageSource.BOSS_AZ, classifier.classify("boss.az", "Java Developer"));
+        assertEquals(ImageSource.RABOTA_AZ, classifier.classify("rabota.az", null));
+        assertEquals(ImageSource.JOBSEARCH_AZ, classifier.classify("unknown.com", "Java Developer"));
+        assertEquals(ImageSource.JOBSEARCH_AZ, classifier.classify(null, "Java Developer"));
+    }
+
+    @Test
+    public void matchesKeywordsIgnoringCase() {
+        assertEquals(ImageSource.JAVA, classifier.classify("monster.de", "Senior JAVA Entwickler"));
+        assertEquals(ImageSource.NET, classifier.classify("careerbuilder.com", "ASP.Net Engineer"));
+        assertEquals(ImageSource.SQL, classifier.classify("careerbuilder.com", "PostgreSQL DBA"));
+        assertEquals(ImageSource.DEVELOPER, classifier.classify("careerbuilder.com", "Frontend Developer"));
+        assertEquals(ImageSource.DEVELOPER, classifier.classify("careerbuilder.com", null));
+    }
+
+    @Test
+    public void firstDeclaredRuleWins() {
+        assertEquals(ImageSource.JAVA, classifier.classify("monster.de", "Python / Java Developer"));
+        assertEquals(ImageSource.ANDROID, classifier.classify("monster.de", "Android developer (SQLite)"));
+        assertEquals(ImageSource.PYTHON, classifier.classify("monster.de", "phpython"));   // overlapping keywords
+    }
+
+}
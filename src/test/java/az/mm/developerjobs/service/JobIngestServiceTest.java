@@ -0,0 +1,139 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.config.SchemaInitializer;
+import az.mm.developerjobs.model.IngestResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JobIngestServiceTest {
+
+    private static final String TABLE = "create table all_vacancies (id integer primary key autoincrement not null, job_title varchar, "
+            + "company varchar, salary varchar, published varchar, deadline varchar, link varchar not null, website varchar, "
+            + "insert_date datetime default current_timestamp, content text, location varchar, country_code varchar, "
+            + "job_type varchar, url_suffix varchar(150), unique (link asc))";
+
+    private File database;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private DataVersion dataVersion;
+    private JobIngestService service;
+
+    @Before
+    public void setUp() throws IOException {
+        database = File.createTempFile("ingest", ".sqlite");
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + database.getAbsolutePath(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(TABLE);
+        jdbcTemplate.update("insert into all_vacancies (link, job_title, country_code) values ('https://boss.az/1', 'Java developer', '031')");
+
+        SchemaInitializer schema = new SchemaInitializer();
+        ReflectionTestUtils.setField(schema, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.invokeMethod(schema, "createChangeCounter");
+
+        dataVersion = new DataVersion();
+        ReflectionTestUtils.setField(dataVersion, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(dataVersion, "schemaInitializer", schema);
+        ReflectionTestUtils.setField(dataVersion, "eventPublisher", new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void publishEvent(Object event) {
+                events.add(event);
+            }
+        });
+
+        service = new JobIngestService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(service, "dataVersion", dataVersion);
+        ReflectionTestUtils.setField(service, "imageClassifier", new ImageClassifier());
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.destroy();
+        database.delete();
+    }
+
+    @Test
+    public void insertsNewJobsAndCountsTheRest() throws IOException {
+        String ndjson = "{\"link\":\"https://boss.az/2\",\"jobTitle\":\"PHP developer\",\"company\":\"Acme\",\"countryCode\":\"031\"}\n"
+                      + "{\"link\":\"https://boss.az/2\",\"jobTitle\":\"PHP developer\",\"countryCode\":\"031\"}\n"    // duplicate in the stream
+                      + "{\"link\":\"https://boss.az/1\",\"jobTitle\":\"Java developer\",\"countryCode\":\"031\"}\n"   // already in the table
+                      + "{\"link\":\"https://boss.az/3\",\"jobTitle\n"                                                  // malformed
+                      + "{\"link\":\"https://boss.az/4\",\"countryCode\":\"031\"}\n"                                     // no title
+                      + "\n"
+                      + "{\"link\":\"https://boss.az/5\",\"jobTitle\":\"QA\",\"company\":\"Initech\",\"countryCode\":\"031\",\"unknown\":1}\n";
+
+        IngestResult result = service.ingest(new StringReader(ndjson));
+
+        assertEquals(6, result.getReceived());
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(2, result.getInvalid());
+
+        assertEquals(3, (int) jdbcTemplate.queryForObject("select count(*) from all_vacancies", Integer.class));
+        assertEquals("acme-php-developer", jdbcTemplate.queryForObject("select url_suffix from all_vacancies where link = 'https://boss.az/2'", String.class));
+        assertEquals("initech-qa", jdbcTemplate.queryForObject("select url_suffix from all_vacancies where link = 'https://boss.az/5'", String.class));
+        assertTrue(jdbcTemplate.queryForObject("select insert_date from all_vacancies where link = 'https://boss.az/5'", String.class) != null);
+
+        assertTrue(events.isEmpty());     // not on the request thread
+        dataVersion.publishPending();
+        assertEquals(1, events.size());   // search index and caches are refreshed once
+        assertTrue(events.get(0) instanceof DataChangedEvent);
+    }
+
+    @Test
+    public void requestsPostedTogetherAreRefreshedOnce() throws IOException {
+        service.ingest(new StringReader("{\"link\":\"https://boss.az/2\",\"jobTitle\":\"PHP developer\",\"countryCode\":\"031\"}\n"));
+        service.ingest(new StringReader("{\"link\":\"https://boss.az/3\",\"jobTitle\":\"QA\",\"countryCode\":\"031\"}\n"));
+
+        dataVersion.publishPending();
+        dataVersion.publishPending();
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void nothingIsRefreshedWithoutNewRows() throws IOException {
+        IngestResult result = service.ingest(new StringReader("{\"link\":\"https://boss.az/1\",\"jobTitle\":\"Java developer\",\"countryCode\":\"031\"}\n"));
+
+        assertEquals(1, result.getDuplicates());
+        assertEquals(0, result.getInserted());
+        dataVersion.publishPending();
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void urlSuffixMatchesScraper() {
+        assertEquals("cybercoders-back-end-engineer-python-", JobIngestService.urlSuffix("CyberCoders", "Back-End Engineer (Python 3.6)"));
+        assertEquals("goldenpay-senior-java-developer", JobIngestService.urlSuffix("GoldenPay", "SENİOR JAVA DEVELOPER"));
+        assertEquals("unibank-xarici-bank-sistemleri-uzre-proqramci",
+                     JobIngestService.urlSuffix("Unibank", "Xarici bank sistemləri üzrə Proqramçı"));
+        assertEquals("icgroup-programmist-s", JobIngestService.urlSuffix("ICGROUP", "ПРОГРАММИСТ 1С"));
+        assertEquals("fleetpool-gmbh-php-lead-developer-fur-mobilitäts-software-m-w-in-vollzeit",
+                     JobIngestService.urlSuffix("Fleetpool GmbH", "PHP Lead Developer für Mobilitäts-Software (m/w) in Vollzeit"));
+    }
+
+}
@@ -0,0 +1,38 @@
+package az.mm.developerjobs.service;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class JobServiceTest {
+
+    @Test
+    public void matchQueryQuotesEveryWordAsPrefix() {
+        assertEquals("\"java\"*", JobService.toMatchQuery("java"));
+        assertEquals("\"java\"* \"developer\"*", JobService.toMatchQuery("  java   developer "));
+        assertEquals("\"Bakı\"* \"proqramçı\"*", JobService.toMatchQuery("Bakı proqramçı"));
+    }
+
+    @Test
+    public void matchQueryDropsSyntaxTypedByUser() {
+        assertEquals("\"java\"* \"spring\"*", JobService.toMatchQuery("\"java\" \"spring"));   // quotes, also unbalanced
+        assertEquals("\"java\"*", JobService.toMatchQuery("java*"));
+        assertEquals("\"java\"* \"c\"*", JobService.toMatchQuery("java -c++"));
+        assertEquals("\"job\"* \"title\"* \"java\"*", JobService.toMatchQuery("job_title:java"));   // no column filter
+        assertEquals("\"title\"* \"java\"*", JobService.toMatchQuery("{title}: ^java"));
+    }
+
+    @Test
+    public void matchQueryKeepsOperatorsAsWords() {
+        assertEquals("\"java\"* \"OR\"* \"php\"*", JobService.toMatchQuery("java OR php"));
+        assertEquals("\"java\"* \"AND\"* \"NOT\"* \"php\"*", JobService.toMatchQuery("java AND NOT php"));
+        assertEquals("\"NEAR\"* \"java\"* \"php\"* \"5\"*", JobService.toMatchQuery("NEAR(java php, 5)"));
+    }
+
+    @Test
+    public void matchQueryOfNoWordsIsEmpty() {
+        assertEquals("", JobService.toMatchQuery(""));
+        assertEquals("", JobService.toMatchQuery("  \"*\" - + () "));
+        assertEquals("", JobService.toMatchQuery(null));
+    }
+
+}
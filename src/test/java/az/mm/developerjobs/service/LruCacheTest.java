@@ -0,0 +1,72 @@
+package az.mm.developerjobs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class LruCacheTest {
+
+    private final LruCache<String, String> cache = new LruCache<>("test", 10, String::length);
+
+    @Test
+    public void evictsLeastRecentlyUsedByWeight() {
+        cache.put("a", "aaaa");
+        cache.put("b", "bbb");
+        cache.put("c", "cc");
+        assertEquals("aaaa", cache.getIfPresent("a"));   // b is the least recently used now
+
+        cache.put("d", "dd");
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(3, cache.size());
+        assertEquals(8, cache.weight());
+        assertEquals(1, cache.evictionCount());
+
+        cache.put("e", "eeeeeeee");                         // evicts c, then a, until it fits
+        assertEquals(2, cache.size());
+        assertEquals("dd", cache.getIfPresent("d"));
+        assertEquals(10, cache.weight());
+        assertEquals(3, cache.evictionCount());
+    }
+
+    @Test
+    public void replacingValueKeepsWeight() {
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+        assertEquals(2, cache.weight());
+        assertEquals("aa", cache.getIfPresent("a"));
+    }
+
+    @Test
+    public void valueHeavierThanCacheIsNotKept() {
+        cache.put("a", "aaaa");
+        assertEquals("01234567890", cache.get("big", key -> "01234567890"));
+        assertNull(cache.getIfPresent("big"));
+        assertEquals("aaaa", cache.getIfPresent("a"));   // nothing evicted for it
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void loadsOnceAndCountsHits() {
+        assertEquals("v1", cache.get("k", key -> "v1"));
+        assertEquals("v1", cache.get("k", key -> "v2"));
+        assertNull(cache.get("none", key -> null));        // nulls are not cached
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    public void loadRacingClearIsDropped() {
+        String value = cache.get("k", key -> {
+            cache.clear();                                  // data changed while loading
+            return "stale";
+        });
+        assertEquals("stale", value);
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(0, cache.weight());
+
+        assertEquals("fresh", cache.get("k", key -> "fresh"));
+        assertEquals("fresh", cache.getIfPresent("k"));
+    }
+
+}
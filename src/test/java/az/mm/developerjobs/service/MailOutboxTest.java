@@ -0,0 +1,171 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.config.SchemaInitializer;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MailOutboxTest {
+
+    private File database;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private FakeSmtpServer smtp;
+    private MailOutbox outbox;
+
+    @Before
+    public void setUp() throws IOException {
+        database = File.createTempFile("outbox", ".sqlite");
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + database.getAbsolutePath(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        SchemaInitializer schema = new SchemaInitializer();
+        ReflectionTestUtils.setField(schema, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.invokeMethod(schema, "createOutbox");
+
+        smtp = new FakeSmtpServer();
+
+        outbox = new MailOutbox();
+        ReflectionTestUtils.setField(outbox, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(outbox, "javaMailSender", sender(smtp.getPort()));
+        ReflectionTestUtils.setField(outbox, "to", "contact@developerjobs.info");
+        ReflectionTestUtils.setField(outbox, "maxPending", 3);
+        ReflectionTestUtils.setField(outbox, "batchSize", 2);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outbox, "backoff", 60000L);
+        ReflectionTestUtils.setField(outbox, "maxBackoff", 60000L);
+        ((AtomicBoolean) ReflectionTestUtils.getField(outbox, "wakeUpPending")).set(true);   // worker stays idle, deliver() is called by tests
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        outbox.shutdown();
+        smtp.close();
+        dataSource.destroy();
+        database.delete();
+    }
+
+    @Test
+    public void deliversQueuedMailsInBatches() {
+        for (int i = 0; i < 3; i++) enqueue("Message " + i);
+
+        outbox.deliver();
+
+        assertEquals(3, smtp.messages.size());
+        assertTrue(smtp.messages.get(0).contains("Message 0"));
+        assertEquals(0, outbox.countPending());
+    }
+
+    @Test
+    public void failedMailIsRetriedLater() throws IOException {
+        enqueue("Message");
+        ReflectionTestUtils.setField(outbox, "javaMailSender", sender(closedPort()));   // connection refused
+
+        outbox.deliver();
+
+        assertEquals(1, outbox.countPending());
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select attempts from mail_outbox", Integer.class));
+        assertTrue(jdbcTemplate.queryForObject("select next_attempt_at from mail_outbox", Long.class) > System.currentTimeMillis());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsWhenFull() {
+        for (int i = 0; i < 4; i++) enqueue("Message " + i);
+    }
+
+    private void enqueue(String body) {
+        outbox.enqueue("user@example.com", "Contact", body);
+    }
+
+    private static JavaMailSenderImpl sender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        return sender;
+    }
+
+    /**
+     * A port nothing listens on
+     */
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+
+    /**
+     * Accepts every message, one client at a time.
+     */
+    private static final class FakeSmtpServer implements Runnable {
+        private final ServerSocket socket = new ServerSocket(0);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        FakeSmtpServer() throws IOException {
+            Thread thread = new Thread(this, "fake-smtp");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    talk(new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)),
+                         new PrintWriter(client.getOutputStream(), true));
+                } catch (IOException ex) {
+                    // closed
+                }
+            }
+        }
+
+        private void talk(BufferedReader in, PrintWriter out) throws IOException {
+            out.print("220 localhost fake\r\n");
+            out.flush();
+            for (String line; (line = in.readLine()) != null; ) {
+                String command = line.toUpperCase();
+                if (command.startsWith("DATA")) {
+                    out.print("354 go ahead\r\n");
+                    out.flush();
+                    StringBuilder message = new StringBuilder();
+                    for (String data; (data = in.readLine()) != null && !data.equals("."); ) message.append(data).append('\n');
+                    messages.add(message.toString());
+                    out.print("250 queued\r\n");
+                } else if (command.startsWith("QUIT")) {
+                    out.print("221 bye\r\n");
+                    out.flush();
+                    return;
+                } else {
+                    out.print("250 ok\r\n");
+                }
+                out.flush();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package az.mm.developerjobs.service;
+
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PageBoundaryCacheTest {
+
+    private File database;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final PageBoundaryCache cache = new PageBoundaryCache();
+
+    @Before
+    public void setUp() throws IOException {
+        database = File.createTempFile("pages", ".sqlite");
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + database.getAbsolutePath(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table all_vacancies (id integer primary key, country_code varchar)");
+        insert("031", 1, 20);   // exactly 2 pages
+        insert("840", 21, 41);  // 2 pages and one job
+        ReflectionTestUtils.setField(cache, "jdbcTemplate", jdbcTemplate);
+    }
+
+    private void insert(String countryCode, int fromId, int toId) {
+        for (int id = fromId; id <= toId; id++)
+            jdbcTemplate.update("insert into all_vacancies (id, country_code) values (?, ?)", id, countryCode);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.destroy();
+        database.delete();
+    }
+
+    @Test
+    public void firstPageNeedsNoBoundary() {
+        assertEquals(PageBoundaryCache.FIRST_PAGE, cache.lastSeenId("031", 0));
+        assertEquals(PageBoundaryCache.FIRST_PAGE, cache.lastSeenId("031", -5));
+        assertEquals(PageBoundaryCache.FIRST_PAGE, cache.lastSeenId("999", 0));
+    }
+
+    @Test
+    public void fullPagesEndExactly() {
+        assertEquals(11, cache.lastSeenId("031", 1));   // page 2 is ids 10..1
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("031", 2));
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("031", 100));
+    }
+
+    @Test
+    public void lastPageMayHoldOneJob() {
+        assertEquals(32, cache.lastSeenId("840", 1));   // ids 41..32, 31..22, 21
+        assertEquals(22, cache.lastSeenId("840", 2));
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("840", 3));
+    }
+
+    @Test
+    public void unknownCountryHasOnlyTheFirstPage() {
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("999", 1));
+    }
+
+    @Test
+    public void boundariesAreReloadedWhenDataChanges() {
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("031", 2));
+
+        insert("031", 100, 105);
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("031", 2));   // kept until the change is reported
+
+        cache.onDataChanged(new DataChangedEvent(this, 2));
+        assertEquals(17, cache.lastSeenId("031", 1));   // ids 105..100 and 20..17, 16..7, 6..1
+        assertEquals(7, cache.lastSeenId("031", 2));
+        assertEquals(PageBoundaryCache.NO_PAGE, cache.lastSeenId("031", 3));
+    }
+
+}
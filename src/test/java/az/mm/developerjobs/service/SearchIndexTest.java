@@ -0,0 +1,99 @@
+package az.mm.developerjobs.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @Before
+    public void createIndex() {
+        index = new SearchIndex(2, 10000, 2, 1 << 20);   // 2 jobs per segment
+        index.load(builder(""));
+    }
+
+    /**
+     * @param published5 published of job 5
+     */
+    private static SearchIndex.Builder builder(String published5) {
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        builder.add(1, "Java developer", "Acme", "Spring, Hibernate, Java 8", "", "2018-05-01 10:00:00");
+        builder.add(2, "PHP developer", "Acme", "Laravel", "Avqust 08, 2017", "2018-05-01 10:00:00");
+        builder.add(4, "Senior Java Engineer", "Globex", null, "2018-04-01", "2018-05-02 10:00:00");
+        builder.add(5, "QA", "Initech", "Selenium, java", published5, "2018-05-01 10:00:00");
+        builder.add(8, "JavaScript developer", "Globex", "React", "", "2018-05-01 10:00:00");
+        builder.add(9, "DevOps", "Initech", "Kubernetes", "", null);
+        builder.add(12, "Go developer", "Hooli", "Java is a plus", "", "2018-05-01 10:00:00");
+        return builder;
+    }
+
+    @After
+    public void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    public void mergesSegmentsByIdDesc() {
+        assertArrayEquals(new int[]{12, 8, 4, 1}, index.search("Java", true));
+        assertArrayEquals(new int[]{12, 8, 5, 4, 1}, index.search("java", false));
+        assertArrayEquals(new int[]{12, 8, 2, 1}, index.search("developer", true));
+        assertArrayEquals(new int[0], index.search("Cobol", true));
+    }
+
+    @Test
+    public void ranksTitleOverContentAndNewerOverOlder() {
+        // titles: 1 (and content), 8, 4 (a month older); contents: 12, 5 - of equal scores the newer first
+        assertArrayEquals(new int[]{1, 8, 4}, index.rank("java", false, null, 3));
+        assertArrayEquals(new int[]{1, 8, 4, 12, 5}, index.rank("java", false, null, 100));
+        assertArrayEquals(new int[]{12, 5}, index.rank("java", false, IdBitmap.of(new int[]{5, 9, 12}), 10));
+        assertArrayEquals(new int[]{1, 8}, index.rank(index.find("java", false), null, 2));
+        assertArrayEquals(new int[0], index.rank("java", false, null, 0));
+        assertArrayEquals(new int[0], index.rank("java", false, null, Integer.MIN_VALUE));
+
+        index.load(builder("2018-06-30"));
+        assertArrayEquals(new int[]{5, 12}, index.rank("java", false, IdBitmap.of(new int[]{5, 9, 12}), 10));
+    }
+
+    @Test
+    public void topKKeepsBestScores() {
+        SearchIndex.TopK top = new SearchIndex.TopK(3);
+        float[] scores = {1, 5, 3, 5, 0.5f, 4, 2};
+        for (int id = 0; id < scores.length; id++) top.offer(id, scores[id]);
+        assertArrayEquals(new int[]{3, 1, 5}, top.toArray());
+    }
+
+    @Test
+    public void cachesResultsByNormalizedTextUntilRebuilt() {
+        int[] ids = index.search("Java", false);
+        assertSame(ids, index.search("JAVA", false));
+        assertArrayEquals(new int[]{12, 8, 4, 1}, index.search("Java", true));
+        assertArrayEquals(new int[]{1, 8}, index.rank("jAvA", false, null, 2));
+        assertEquals(2, index.getCache().size());
+
+        index.load(builder(""));
+        assertEquals(0, index.getCache().size());
+        assertNotSame(ids, index.search("Java", false));
+    }
+
+    @Test
+    public void searchOverTimeBudgetIsCutAndNotCached() {
+        SearchIndex slow = new SearchIndex(2, 0, 2, 1 << 20);   // no time at all
+        try {
+            slow.load(builder(""));
+            assertTrue(slow.find("java", false).isCut());
+            assertEquals(0, slow.getCache().size());
+            assertFalse(index.find("java", false).isCut());
+        } finally {
+            slow.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package az.mm.developerjobs.service;
+
+import az.mm.developerjobs.constant.StorageMode;
+import az.mm.developerjobs.entity.JobInfo;
+import az.mm.developerjobs.model.JobSummary;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SnapshotStoreTest {
+
+    private static final String TABLE = "create table all_vacancies (id integer primary key, job_title varchar, company varchar, "
+            + "salary varchar, published varchar, deadline varchar, link varchar, website varchar, insert_date datetime, content text, "
+            + "location varchar, country_code varchar, job_type varchar, url_suffix varchar)";
+
+    private File database;
+    private File file;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final SnapshotStore store = new SnapshotStore();
+
+    @Before
+    public void setUp() throws IOException {
+        database = File.createTempFile("snapshot", ".sqlite");
+        file = File.createTempFile("jobs", ".snapshot");
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + database.getAbsolutePath(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(TABLE);
+        for (int id = 1; id <= 12; id++) {
+            jdbcTemplate.update("insert into all_vacancies (id, job_title, company, link, website, content, country_code, url_suffix) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                                id, "Job " + id, "Acme", "https://boss.az/" + id, "boss.az", id == 3 ? null : "Content " + id, "031", "acme-job-" + id);
+        }
+        jdbcTemplate.update("insert into all_vacancies (id, job_title, company, link, content, country_code, url_suffix) values (20, ?, ?, ?, ?, '840', 'x')",
+                            "Proqramçı – Bakı", "Şirkət", "https://example.com/20", "Ünvan: Bakı ✓");
+
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "storage", StorageMode.SNAPSHOT);
+        ReflectionTestUtils.setField(store, "file", file.getPath());
+        store.init();
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.destroy();
+        database.delete();
+        file.delete();
+    }
+
+    @Test
+    public void reopenedFileHasAllFields() throws IOException {
+        SnapshotStore.Snapshot s;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            s = new SnapshotStore.Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        assertEquals(13, s.count);
+        assertEquals(20, s.id(0));   // id desc
+        assertEquals(1, s.id(12));
+        assertEquals(-1, s.find(13));
+
+        JobInfo job = s.job(s.find(20));
+        assertEquals("Proqramçı – Bakı", job.getJobTitle());
+        assertEquals("Şirkət", job.getCompany());
+        assertEquals("Ünvan: Bakı ✓", job.getContent());
+        assertEquals("840", job.getCountryCode());
+        assertNull(job.getWebsite());
+        assertNull(s.job(s.find(3)).getContent());
+    }
+
+    @Test
+    public void findsJobsByIdAndUrlSuffix() {
+        assertEquals("Content 5", store.findByIdAndUrlSuffix(5, "acme-job-5").getContent());
+        assertNull(store.findByIdAndUrlSuffix(5, "acme-job-6"));
+        assertNull(store.findByIdAndUrlSuffix(99, "acme-job-99"));
+
+        assertEquals("7,20,1", ids(store.findSummaries(new int[]{7, 99, 20, 1})));
+    }
+
+    @Test
+    public void pagesOfCountryByIdDesc() {
+        assertEquals("12,11,10,9,8,7,6,5,4,3", ids(store.findSummaries("031", 0)));
+        assertEquals("2,1", ids(store.findSummaries("031", 1)));
+        assertTrue(store.findSummaries("031", 2).isEmpty());
+        assertTrue(store.findSummaries("031", Integer.MAX_VALUE).isEmpty());
+        assertEquals("12,11,10,9,8,7,6,5,4,3", ids(store.findSummaries("031", -5)));   // first page, as the keyset path
+        assertTrue(store.findSummaries("999", 0).isEmpty());
+
+        assertEquals(12, (int) store.countGroupByCountryCode().get("031"));
+        assertEquals(1, (int) store.countGroupByCountryCode().get("840"));
+    }
+
+    @Test
+    public void rebuiltOnDataChange() {
+        jdbcTemplate.update("insert into all_vacancies (id, job_title, link, country_code, url_suffix) values (13, 'New', 'https://boss.az/13', '031', 'new')");
+        assertNull(store.findByIdAndUrlSuffix(13, "new"));
+
+        store.onDataChanged(new DataChangedEvent(this, 2));
+        assertEquals("New", store.findByIdAndUrlSuffix(13, "new").getJobTitle());
+        assertEquals("13,12,11,10,9,8,7,6,5,4", ids(store.findSummaries("031", 0)));
+    }
+
+    private static String ids(List<JobSummary> jobs) {
+        return jobs.stream().map(j -> String.valueOf(j.getId())).collect(Collectors.joining(","));
+    }
+
+}
@@ -0,0 +1,66 @@
+package az.mm.developerjobs.trace;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.mock.web.MockHttpServletRequest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest {
+
+    interface Repository {
+        @Query("select j from JobInfo j where j.countryCode = :countryCode")
+        List<Object> findByCountry(String countryCode, int page);
+    }
+
+    @Test
+    public void keepsSlowRequestWithSpans() throws Exception {
+        Tracer tracer = new Tracer(0, 2);
+        Method query = Repository.class.getDeclaredMethod("findByCountry", String.class, int.class);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/country");
+        request.setQueryString("id=840&page=2");
+
+        RequestTrace trace = tracer.begin();
+        int outer = RequestTrace.enter(TracerTest.class.getDeclaredMethod("keepsSlowRequestWithSpans"), null);
+        RequestTrace.exit(RequestTrace.enter(query, new Object[]{"840", 2}));
+        RequestTrace.exit(outer);
+        RequestTrace.record("render", System.nanoTime(), System.nanoTime());
+        tracer.end(trace, request, 200);
+
+        SlowTrace slow = tracer.getSlowTraces().get(0);
+        assertEquals("GET /country?id=840&page=2", slow.getRequest());
+        assertEquals(3, slow.getSpans().size());
+
+        SlowTrace.Span span = slow.getSpans().get(1);
+        assertEquals("Repository.findByCountry", span.getName());
+        assertEquals(1, span.getDepth());
+        assertEquals("select j from JobInfo j where j.countryCode = :countryCode", span.getStatement());
+        assertEquals("[840, 2]", span.getArgs());
+        assertEquals(0, slow.getSpans().get(2).getDepth());
+        assertTrue(slow.toString().contains("render"));
+    }
+
+    @Test
+    public void keepsOnlyLastTracesAndNothingOutsideRequests() {
+        Tracer tracer = new Tracer(0, 2);
+        assertEquals(-1, RequestTrace.enter(null, null));
+
+        for (String uri : new String[]{"/1", "/2", "/3"}) tracer.end(tracer.begin(), new MockHttpServletRequest("GET", uri), 200);
+
+        List<SlowTrace> traces = tracer.getSlowTraces();
+        assertEquals(2, traces.size());
+        assertEquals("GET /3", traces.get(0).getRequest());
+        assertEquals("GET /2", traces.get(1).getRequest());
+        assertEquals(-1, RequestTrace.enter(null, null));
+    }
+
+    @Test
+    public void fastRequestsAreNotKept() {
+        Tracer tracer = new Tracer(60000, 2);
+        tracer.end(tracer.begin(), new MockHttpServletRequest("GET", "/"), 200);
+        assertTrue(tracer.getSlowTraces().isEmpty());
+    }
+
+}
@@ -0,0 +1,82 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.trace.RequestTrace;
+import az.mm.developerjobs.trace.SlowTrace;
+import az.mm.developerjobs.trace.Tracer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class BulkheadTest {
+
+    @Test
+    public void rejectsWhenThreadsAndQueueAreBusy() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = bulkhead.submit(() -> {
+                release.await();
+                return Thread.currentThread().getName();
+            });
+            CompletableFuture<String> queued = bulkhead.submit(() -> "queued");
+            try {
+                bulkhead.submit(() -> "rejected");
+                fail("bulkhead is full");
+            } catch (RejectedExecutionException expected) {
+            }
+            assertEquals(1, bulkhead.rejectedCount());
+
+            release.countDown();
+            assertEquals("test-1", running.get(5, TimeUnit.SECONDS));
+            assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    public void runsOnCallingThreadWithoutThreads() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 0, 1);
+        assertEquals(Thread.currentThread().getName(), bulkhead.submit(() -> Thread.currentThread().getName()).get());
+
+        CompletableFuture<Object> failed = bulkhead.submit(() -> { throw new IllegalStateException("failed"); });
+        try {
+            failed.get();
+            fail("task failed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void continuesRequestTrace() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+        Tracer tracer = new Tracer(0, 1);
+        try {
+            RequestTrace trace = tracer.begin();
+            String thread = bulkhead.submit(() -> {
+                RequestTrace.record("handler", System.nanoTime(), System.nanoTime());
+                return Thread.currentThread().getName();
+            }).get(5, TimeUnit.SECONDS);
+            assertNotEquals(Thread.currentThread().getName(), thread);
+
+            tracer.detach(trace);   // as TraceFilter does when the request goes async
+            tracer.end(trace, new MockHttpServletRequest("GET", "/"), 200);
+
+            SlowTrace slow = tracer.getSlowTraces().get(0);
+            assertEquals(1, slow.getSpans().size());
+            assertEquals("handler", slow.getSpans().get(0).getName());
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+}
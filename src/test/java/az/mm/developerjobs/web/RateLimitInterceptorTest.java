@@ -0,0 +1,44 @@
+package az.mm.developerjobs.web;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RateLimitInterceptorTest {
+
+    @Test
+    public void forwardedForIsIgnoredByDefault() {
+        assertEquals("5.5.5.5", interceptor(false).clientIp(request("5.5.5.5", "1.1.1.1")));
+    }
+
+    @Test
+    public void forwardedForIsTrustedOnlyFromProxies() {
+        RateLimitInterceptor interceptor = interceptor(true);
+        assertEquals("5.5.5.5", interceptor.clientIp(request("5.5.5.5", "1.1.1.1")));                     // not our proxy
+        assertEquals("2.2.2.2", interceptor.clientIp(request("10.0.0.1", "1.1.1.1, 2.2.2.2")));           // client's entry is ignored
+        assertEquals("2.2.2.2", interceptor.clientIp(request("10.0.0.1", "1.1.1.1, 2.2.2.2, 10.0.0.2")));  // chain of proxies
+        assertEquals("10.0.0.1", interceptor.clientIp(request("10.0.0.1", null)));
+    }
+
+    private static RateLimitInterceptor interceptor(boolean trustForwardedFor) {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor();
+        ReflectionTestUtils.setField(interceptor, "searchPerMinute", 60);
+        ReflectionTestUtils.setField(interceptor, "searchBurst", 20);
+        ReflectionTestUtils.setField(interceptor, "mailPerMinute", 2);
+        ReflectionTestUtils.setField(interceptor, "mailBurst", 3);
+        ReflectionTestUtils.setField(interceptor, "maxClients", 100);
+        ReflectionTestUtils.setField(interceptor, "trustForwardedFor", trustForwardedFor);
+        ReflectionTestUtils.setField(interceptor, "trustedProxies", new String[]{"10.0.0.1", "10.0.0.2"});
+        interceptor.createLimiters();
+        return interceptor;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/search.htm");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) request.addHeader("X-FORWARDED-FOR", forwardedFor);
+        return request;
+    }
+
+}
@@ -0,0 +1,57 @@
+package az.mm.developerjobs.web;
+
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    private long now = TimeUnit.DAYS.toNanos(1);
+    private final RateLimiter limiter = new RateLimiter("test", 60, 3, 2, () -> now);   // 1 token per second
+
+    @Test
+    public void allowsBurstThenRejects() {
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.acquire("1.1.1.1"));
+
+        long wait = limiter.acquire("1.1.1.1");
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+        assertEquals(0, limiter.acquire("2.2.2.2"));   // other clients are not affected
+
+        now += wait;
+        assertEquals(0, limiter.acquire("1.1.1.1"));
+        assertTrue(limiter.acquire("1.1.1.1") > 0);
+        assertEquals(2, limiter.rejectedCount());
+    }
+
+    @Test
+    public void evictsIdleBuckets() {
+        limiter.acquire("1.1.1.1");
+        limiter.acquire("2.2.2.2");
+        assertEquals(2, limiter.size());
+
+        now += TimeUnit.SECONDS.toNanos(5);
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void newClientsEvictLeastRecentlyUsedWhenFull() {
+        for (int i = 0; i < 3; i++) limiter.acquire("1.1.1.1");   // 1.1.1.1 is used up
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        limiter.acquire("2.2.2.2");
+        assertEquals(2, limiter.size());
+
+        for (int i = 0; i < 10; i++) {                             // rotating addresses
+            now += TimeUnit.MILLISECONDS.toNanos(100);
+            assertEquals(0, limiter.acquire("3.3.3." + i));       // a new visitor is never rejected
+            assertEquals(2, limiter.size());
+        }
+
+        assertEquals(0, limiter.rejectedCount());
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertEquals(0, limiter.acquire("4.4.4.4"));               // idle buckets go first
+        assertEquals(1, limiter.size());
+    }
+
+}
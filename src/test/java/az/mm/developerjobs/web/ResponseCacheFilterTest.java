@@ -0,0 +1,153 @@
+package az.mm.developerjobs.web;
+
+import az.mm.developerjobs.service.DataVersion;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ResponseCacheFilterTest {
+
+    private static final String ETAG = "\"1-abc\"";
+
+    private final ResponseCacheFilter filter = new ResponseCacheFilter();
+    private final AtomicInteger rendered = new AtomicInteger();
+    private String etag = ETAG;   // set by CacheHeadersInterceptor for job pages
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(filter, "dataVersion", new DataVersion());
+        ReflectionTestUtils.setField(filter, "maxBytes", 1L << 20);
+        filter.createCache();
+    }
+
+    @Test
+    public void repeatedRequestIsServedFromCache() throws Exception {
+        MockHttpServletResponse first = get(request("/country", "id=840"), r -> { });
+        assertEquals("page 1", first.getContentAsString());
+        assertEquals(ETAG, first.getHeader("ETag"));
+
+        MockHttpServletResponse plain = get(request("/country", "id=840"), r -> { });
+        assertEquals("page 1", plain.getContentAsString());
+        assertNull(plain.getHeader("Content-Encoding"));
+
+        MockHttpServletRequest gzip = request("/country", "id=840");
+        gzip.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse gzipped = get(gzip, r -> { });
+        assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+        assertArrayEquals("page 1".getBytes("UTF-8"), gunzip(gzipped.getContentAsByteArray()));
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void ifNoneMatchIsAnsweredWith304() throws Exception {
+        get(request("/job/5/acme-java-developer", null), r -> { });
+
+        MockHttpServletRequest revalidate = request("/job/5/acme-java-developer", null);
+        revalidate.addHeader("If-None-Match", "W/" + ETAG);
+        MockHttpServletResponse response = get(revalidate, r -> { });
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(0, response.getContentLength());
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void keyHasOnlyParametersOfThePages() throws Exception {
+        get(request("/country", "id=840&page=2&website=a.com"), r -> { });
+        get(request("/country", "page=2&utm_source=x&id=840&website=a.com"), r -> { });
+        assertEquals(1, rendered.get());
+        assertEquals(1, filter.getCache().size());
+
+        get(request("/country", "id=840&page=3&website=a.com"), r -> { });
+        get(request("/country", "id=840&page=2&website=a.com&website=b.com"), r -> { });
+        assertEquals(3, rendered.get());
+        assertEquals("/country?id=840&page=2&website=a.com&website=b.com&",
+                     ResponseCacheFilter.key(request("/country", "website=a.com&page=2&id=840&website=b.com")));
+        assertEquals("/job/5/acme?searchText=java+ee&", ResponseCacheFilter.key(request("/job/5/acme;jsessionid=ABC", "searchText=java ee")));
+    }
+
+    @Test
+    public void responsesOfOneVisitorAreNotStored() throws Exception {
+        get(request("/", null), r -> r.addHeader("Set-Cookie", "JSESSIONID=FDAF; Path=/; HttpOnly"));
+
+        MockHttpServletRequest newSession = request("/", null);
+        newSession.getSession(true);
+        get(newSession, r -> { });
+
+        MockHttpServletRequest urlSession = request("/", null);
+        urlSession.setRequestedSessionIdFromURL(true);
+        get(urlSession, r -> { });
+
+        assertEquals(0, filter.getCache().size());
+        get(request("/", null), r -> { });
+        assertEquals(4, rendered.get());
+        assertEquals(1, filter.getCache().size());
+    }
+
+    @Test
+    public void onlyPagesWithEtagAreStored() throws Exception {
+        get(request("/job/6/x", null), r -> r.setStatus(HttpServletResponse.SC_NOT_FOUND));
+        etag = null;
+        get(request("/job/5/x", null), r -> { });
+        MockHttpServletRequest post = request("/country", "id=840");
+        post.setMethod("POST");
+        get(post, r -> { });
+
+        assertEquals(0, filter.getCache().size());
+    }
+
+
+    private static MockHttpServletRequest request(String path, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                String[] param = pair.split("=", 2);
+                request.addParameter(param[0], param[1]);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * @param handler changes the response of the page before it is written
+     */
+    private MockHttpServletResponse get(MockHttpServletRequest request, Consumer<HttpServletResponse> handler) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            HttpServletResponse page = (HttpServletResponse) res;
+            if (etag != null) page.setHeader("ETag", etag);
+            page.setContentType("text/html;charset=UTF-8");
+            handler.accept(page);
+            page.getWriter().write("page " + rendered.incrementAndGet());
+            page.getWriter().flush();
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] buffer = new byte[256];
+            for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+}